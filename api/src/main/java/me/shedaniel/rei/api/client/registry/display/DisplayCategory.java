@@ -32,8 +32,8 @@ import me.shedaniel.rei.api.client.gui.widgets.Widgets;
 import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.display.DisplayMerger;
-import me.shedaniel.rei.api.common.entry.EntryIngredient;
 import me.shedaniel.rei.api.common.util.Identifiable;
+import me.shedaniel.rei.impl.display.ContentDisplayMerger;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.network.chat.Component;
@@ -42,7 +42,6 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 @Environment(EnvType.CLIENT)
@@ -147,30 +146,7 @@ public interface DisplayCategory<T extends Display> extends DisplayCategoryView<
      * @return the content merger
      */
     static <T extends Display> DisplayMerger<T> getContentMerger() {
-        return new DisplayMerger<T>() {
-            @Override
-            public boolean canMerge(T first, T second) {
-                if (!first.getCategoryIdentifier().equals(second.getCategoryIdentifier())) return false;
-                if (!equals(first.getInputEntries(), second.getInputEntries())) return false;
-                if (!equals(first.getOutputEntries(), second.getOutputEntries())) return false;
-                return true;
-            }
-            
-            @Override
-            public int hashOf(T display) {
-                return display.getCategoryIdentifier().hashCode() * 31 * 31 * 31 + display.getInputEntries().hashCode() * 31 * 31 + display.getOutputEntries().hashCode();
-            }
-            
-            private boolean equals(List<EntryIngredient> l1, List<EntryIngredient> l2) {
-                if (l1.size() != l2.size()) return false;
-                Iterator<EntryIngredient> it1 = l1.iterator();
-                Iterator<EntryIngredient> it2 = l2.iterator();
-                while (it1.hasNext() && it2.hasNext()) {
-                    if (!it1.next().equals(it2.next())) return false;
-                }
-                return true;
-            }
-        };
+        return new ContentDisplayMerger<>();
     }
     
     /**
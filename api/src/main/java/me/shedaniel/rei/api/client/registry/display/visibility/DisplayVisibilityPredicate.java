@@ -28,6 +28,10 @@ import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
 import me.shedaniel.rei.api.common.display.Display;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
 
 /**
  * Handler for determining the visibility of displays.
@@ -56,6 +60,19 @@ public interface DisplayVisibilityPredicate extends Comparable<DisplayVisibility
      */
     EventResult handleDisplay(DisplayCategory<?> category, Display display);
     
+    /**
+     * Returns the events after which the results of this handler may change. Displays are only cached
+     * as visible or hidden if every handler declares its triggers, and are checked again after any of them.
+     * Displays are always checked again after a reload.
+     *
+     * @return the invalidation triggers, or {@code null} if the results may change at any time
+     */
+    @ApiStatus.Experimental
+    @Nullable
+    default Set<InvalidationTrigger> getInvalidationTriggers() {
+        return null;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -63,4 +80,19 @@ public interface DisplayVisibilityPredicate extends Comparable<DisplayVisibility
     default int compareTo(DisplayVisibilityPredicate o) {
         return Double.compare(getPriority(), o.getPriority());
     }
+    
+    /**
+     * Events that may change the results of a {@link DisplayVisibilityPredicate}.
+     */
+    @ApiStatus.Experimental
+    enum InvalidationTrigger {
+        /**
+         * The entry filtering rules were changed, or the entries were filtered again.
+         */
+        FILTERING,
+        /**
+         * The config was saved.
+         */
+        CONFIG,
+    }
 }
@@ -30,6 +30,7 @@ import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
 import me.shedaniel.rei.api.common.entry.type.EntryType;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
+import me.shedaniel.rei.impl.Internals;
 import net.minecraft.core.Holder;
 import net.minecraft.core.HolderSet;
 import net.minecraft.core.Registry;
@@ -119,7 +120,7 @@ public final class EntryIngredients {
                 result.add(EntryStacks.of(matchingStack));
             }
         }
-        return result.build();
+        return Internals.getEntryIngredientProvider().intern(result.build());
     }
     
     public static List<EntryIngredient> ofIngredients(List<Ingredient> ingredients) {
@@ -151,7 +152,7 @@ public final class EntryIngredients {
                 result.add(stack);
             }
         }
-        return result.build();
+        return Internals.getEntryIngredientProvider().intern(result.build());
     }
     
     public static <S, T> List<EntryIngredient> ofTags(Iterable<TagKey<S>> tagKeys, Function<Holder<S>, EntryStack<T>> mapper) {
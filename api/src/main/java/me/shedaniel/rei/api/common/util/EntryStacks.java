@@ -31,6 +31,7 @@ import me.shedaniel.rei.api.common.entry.type.EntryType;
 import me.shedaniel.rei.api.common.entry.type.EntryTypeBridge;
 import me.shedaniel.rei.api.common.entry.type.EntryTypeRegistry;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
+import me.shedaniel.rei.impl.common.entry.HashCachingEntryStack;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.ItemLike;
 import net.minecraft.world.level.material.Fluid;
@@ -155,6 +156,9 @@ public final class EntryStacks {
      * @return the hash code of the {@code context} context
      */
     public static <T> long hash(EntryStack<T> stack, ComparisonContext context) {
+        if (stack instanceof HashCachingEntryStack cachingStack) {
+            return cachingStack.cachedHash(context);
+        }
         return stack.getDefinition().hash(stack, stack.getValue(), context);
     }
     
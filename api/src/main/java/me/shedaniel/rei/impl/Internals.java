@@ -142,6 +142,8 @@ public final class Internals {
         EntryIngredient.Builder builder();
         
         EntryIngredient.Builder builder(int initialCapacity);
+        
+        EntryIngredient intern(EntryIngredient ingredient);
     }
     
     public interface NbtHasherProvider {
@@ -0,0 +1,51 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.common.entry;
+
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * An {@link EntryStack} that can memoize its hash codes, used by
+ * {@link me.shedaniel.rei.api.common.util.EntryStacks#hash(EntryStack, ComparisonContext)}.
+ */
+@ApiStatus.Internal
+public interface HashCachingEntryStack {
+    /**
+     * Memoizes both hashes of the given stack, sharing one traversal of its components.
+     * The stack keeps its hashes memoized from then on, so this is only called for stacks owned by the
+     * entry registry, whose values are not mutated in place.
+     *
+     * @param stack the stack to hash
+     */
+    static void cacheHashes(EntryStack<?> stack) {
+        if (stack instanceof HashCachingEntryStack cachingStack) {
+            cachingStack.cacheHashes();
+        }
+    }
+    
+    long cachedHash(ComparisonContext context);
+    
+    void cacheHashes();
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.display;
+
+import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.display.DisplayMerger;
+import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The merger returned by {@link DisplayCategory#getContentMerger()}, merging displays with the same category,
+ * inputs and outputs. Displays it can merge always share their structural hash, which lets the runtime
+ * group them by that hash before comparing them.
+ *
+ * @param <T> the type of display
+ */
+@ApiStatus.Internal
+public final class ContentDisplayMerger<T extends Display> implements DisplayMerger<T> {
+    @Override
+    public boolean canMerge(T first, T second) {
+        if (!first.getCategoryIdentifier().equals(second.getCategoryIdentifier())) return false;
+        if (!equals(first.getInputEntries(), second.getInputEntries())) return false;
+        if (!equals(first.getOutputEntries(), second.getOutputEntries())) return false;
+        return true;
+    }
+    
+    @Override
+    public int hashOf(T display) {
+        return display.getCategoryIdentifier().hashCode() * 31 * 31 * 31 + display.getInputEntries().hashCode() * 31 * 31 + display.getOutputEntries().hashCode();
+    }
+    
+    private boolean equals(List<EntryIngredient> l1, List<EntryIngredient> l2) {
+        if (l1.size() != l2.size()) return false;
+        Iterator<EntryIngredient> it1 = l1.iterator();
+        Iterator<EntryIngredient> it2 = l2.iterator();
+        while (it1.hasNext() && it2.hasNext()) {
+            if (!it1.next().equals(it2.next())) return false;
+        }
+        return true;
+    }
+}
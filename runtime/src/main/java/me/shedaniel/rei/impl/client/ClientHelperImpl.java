@@ -47,8 +47,10 @@ import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
 import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.api.common.util.FormattingUtils;
 import me.shedaniel.rei.impl.ClientInternals;
+import me.shedaniel.rei.impl.client.gui.screen.AbstractDisplayViewingScreen;
 import me.shedaniel.rei.impl.client.gui.screen.CompositeDisplayViewingScreen;
 import me.shedaniel.rei.impl.client.gui.screen.DefaultDisplayViewingScreen;
+import me.shedaniel.rei.impl.client.view.ViewBuild;
 import me.shedaniel.rei.impl.client.view.ViewsImpl;
 import me.shedaniel.rei.impl.display.DisplaySpec;
 import net.fabricmc.api.EnvType;
@@ -334,7 +336,8 @@ public class ClientHelperImpl implements ClientHelper {
     
     @Override
     public boolean openView(ViewSearchBuilder builder) {
-        Map<DisplayCategory<?>, List<DisplaySpec>> map = builder.buildMapInternal();
+        ViewBuild build = builder instanceof ViewSearchBuilderImpl ? ViewsImpl.buildAsync(builder) : null;
+        Map<DisplayCategory<?>, List<DisplaySpec>> map = build != null ? build.awaitFirst() : builder.buildMapInternal();
         if (map.isEmpty()) return false;
         Screen screen;
         if (ConfigObject.getInstance().getRecipeScreenType() == DisplayScreenType.COMPOSITE) {
@@ -342,6 +345,7 @@ public class ClientHelperImpl implements ClientHelper {
         } else if (ConfigObject.getInstance().getRecipeScreenType() == DisplayScreenType.UNSET) {
             ConfigObject.getInstance().setRecipeScreenType(DisplayScreenType.ORIGINAL);
             ConfigManager.getInstance().saveConfig();
+            if (build != null) build.cancel();
             return openView(builder);
 //            screen = new UncertainDisplayViewingScreen(REIRuntime.getInstance().getPreviousScreen(), DisplayScreenType.UNSET, true, original -> {
 //                ConfigObject.getInstance().setRecipeScreenType(original ? DisplayScreenType.ORIGINAL : DisplayScreenType.COMPOSITE);
@@ -351,6 +355,9 @@ public class ClientHelperImpl implements ClientHelper {
         } else {
             screen = new DefaultDisplayViewingScreen(map, builder.getPreferredOpenedCategory());
         }
+        if (build != null && !build.isDone() && screen instanceof AbstractDisplayViewingScreen viewingScreen) {
+            viewingScreen.streamFrom(build);
+        }
         if (screen instanceof DisplayScreen displayScreen) {
             for (EntryStack<?> stack : builder.getUsagesFor()) {
                 displayScreen.addIngredientToNotice(stack);
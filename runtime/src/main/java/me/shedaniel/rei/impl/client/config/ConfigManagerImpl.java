@@ -45,12 +45,16 @@ import me.shedaniel.rei.api.client.entry.filtering.FilteringRuleType;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringRuleTypeRegistry;
 import me.shedaniel.rei.api.client.favorites.FavoriteEntry;
 import me.shedaniel.rei.api.client.gui.config.CheatingMode;
+import me.shedaniel.rei.api.client.registry.display.DisplayRegistry;
+import me.shedaniel.rei.api.client.registry.display.visibility.DisplayVisibilityPredicate;
 import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.impl.client.config.addon.ConfigAddonRegistryImpl;
 import me.shedaniel.rei.impl.client.config.collapsible.CollapsibleConfigManager;
 import me.shedaniel.rei.impl.client.config.entries.ConfigAddonsEntry;
 import me.shedaniel.rei.impl.client.gui.config.REIConfigScreen;
+import me.shedaniel.rei.impl.client.registry.display.DisplayRegistryImpl;
+import me.shedaniel.rei.impl.client.view.ViewsImpl;
 import me.shedaniel.rei.impl.common.InternalLogger;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -260,6 +264,8 @@ public class ConfigManagerImpl implements ConfigManager {
         });
         AutoConfig.getConfigHolder(ConfigObjectImpl.class).save();
         FavoritesConfigManager.getInstance().saveConfig();
+        ((DisplayRegistryImpl) DisplayRegistry.getInstance()).invalidateVisibility(DisplayVisibilityPredicate.InvalidationTrigger.CONFIG);
+        ViewsImpl.invalidateCache();
         InternalLogger.getInstance().debug("Config saved");
     }
     
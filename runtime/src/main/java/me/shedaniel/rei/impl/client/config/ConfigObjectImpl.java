@@ -436,6 +436,46 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
         return advanced.filtering.filteringRules;
     }
     
+    @ApiStatus.Internal
+    public boolean isFilteringRulesParallel() {
+        return advanced.filtering.parallelFilteringRules;
+    }
+    
+    @ApiStatus.Internal
+    public boolean isPersistingFilteringResults() {
+        return advanced.filtering.persistFilteringResults;
+    }
+    
+    @ApiStatus.Internal
+    public boolean isCachingRecipeViews() {
+        return advanced.miscellaneous.cachingRecipeViews;
+    }
+    
+    @ApiStatus.Internal
+    public boolean isBuildingRecipeViewsAsync() {
+        return advanced.miscellaneous.asyncRecipeViews;
+    }
+    
+    @ApiStatus.Internal
+    public long getDisplayGeneratorBudget() {
+        return advanced.miscellaneous.displayGeneratorBudget;
+    }
+    
+    @ApiStatus.Internal
+    public boolean isInterningDisplayIngredients() {
+        return advanced.miscellaneous.internDisplayIngredients;
+    }
+    
+    @ApiStatus.Internal
+    public boolean isFillingDisplaysInParallel() {
+        return advanced.miscellaneous.parallelDisplayFilling;
+    }
+    
+    @ApiStatus.Internal
+    public boolean doDebugHashCollisions() {
+        return advanced.miscellaneous.debugHashCollisions;
+    }
+    
     @ApiStatus.Experimental
     @Override
     public Map<CategoryIdentifier<?>, Boolean> getFilteringQuickCraftCategories() {
@@ -739,6 +779,18 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
             public boolean newFastEntryRendering = true;
             public boolean cachingFastEntryRendering = false;
             public boolean cachingDisplayLookup = true;
+            @Comment("Declares whether recently built recipe views should be reused when they are opened again.")
+            public boolean cachingRecipeViews = true;
+            @Comment("Declares whether recipe views should be built off the client thread, opening as soon as the first category is ready.")
+            public boolean asyncRecipeViews = true;
+            @Comment("The time in milliseconds a display generator may take per lookup before its displays are skipped for that lookup, 0 to wait indefinitely. Generators that keep exceeding it are skipped for a while.")
+            public long displayGeneratorBudget = 1000;
+            @Comment("Declares whether identical ingredients created while loading displays should share their stacks.")
+            public boolean internDisplayIngredients = true;
+            @Comment("Declares whether displays should be filled from recipes on multiple threads. Fillers registered by plugins may not be thread-safe, only enable this if every filler is.")
+            public boolean parallelDisplayFilling = false;
+            @Comment("Declares whether entry hash collisions should be debugged.")
+            public boolean debugHashCollisions = false;
             public CategorySettings categorySettings = new CategorySettings();
             
             public static class CategorySettings {
@@ -752,6 +804,10 @@ public class ConfigObjectImpl implements ConfigObject, ConfigData {
             public List<EntryStackProvider<?>> filteredStacks = new ArrayList<>();
             public boolean shouldFilterDisplays = true;
             public List<FilteringRule<?>> filteringRules = new ArrayList<>();
+            @Comment("Declares whether independent filtering rules should be evaluated in parallel.")
+            public boolean parallelFilteringRules = true;
+            @Comment("Declares whether results of search filtering rules should be reused across restarts. Experimental, persisted results may be stale.")
+            public boolean persistFilteringResults = false;
         }
     }
 }
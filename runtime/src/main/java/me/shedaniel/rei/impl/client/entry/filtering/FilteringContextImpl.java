@@ -23,17 +23,17 @@
 
 package me.shedaniel.rei.impl.client.entry.filtering;
 
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.longs.*;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringContext;
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.api.common.util.CollectionUtils;
-import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
+import me.shedaniel.rei.api.common.util.EntryStacks;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -44,28 +44,68 @@ import java.util.concurrent.TimeoutException;
 @Environment(EnvType.CLIENT)
 public class FilteringContextImpl implements FilteringContext {
     private final boolean async;
-    public final Map<FilteringContextType, Set<HashedEntryStackWrapper>> stacks;
+    /**
+     * The stacks of each context type, keyed by their exact hash.
+     * The key set and the values of each map iterate in the same order.
+     */
+    public final Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> stacks;
+    private final Reference2LongMap<EntryStack<?>> hashes;
     
     public FilteringContextImpl(Collection<EntryStack<?>> allStacks) {
         this(true, allStacks);
     }
     
     public FilteringContextImpl(boolean async, Collection<EntryStack<?>> allStacks) {
+        this(async, allStacks, null);
+    }
+    
+    public FilteringContextImpl(boolean async, Collection<EntryStack<?>> allStacks, @Nullable LongCollection allHashes) {
         this.async = async;
-        this.stacks = Maps.newHashMap();
+        this.stacks = Maps.newEnumMap(FilteringContextType.class);
         for (FilteringContextType type : FilteringContextType.values()) {
-            this.stacks.computeIfAbsent(type, t -> Sets.newHashSet());
+            this.stacks.put(type, new Long2ObjectOpenHashMap<>());
+        }
+        if (allHashes == null) {
+            allHashes = hashAll(async, allStacks);
         }
-        this.stacks.get(FilteringContextType.DEFAULT).addAll(async ? CollectionUtils.mapParallel(allStacks, HashedEntryStackWrapper::new)
-                : CollectionUtils.map(allStacks, HashedEntryStackWrapper::new));
+        Long2ObjectMap<EntryStack<?>> defaultStacks = new Long2ObjectOpenHashMap<>(allStacks.size());
+        this.hashes = new Reference2LongOpenHashMap<>(allStacks.size());
+        Iterator<EntryStack<?>> stackIterator = allStacks.iterator();
+        LongIterator hashIterator = allHashes.iterator();
+        while (stackIterator.hasNext()) {
+            EntryStack<?> stack = stackIterator.next();
+            long hash = hashIterator.nextLong();
+            defaultStacks.put(hash, stack);
+            this.hashes.put(stack, hash);
+        }
+        this.stacks.put(FilteringContextType.DEFAULT, defaultStacks);
     }
     
-    public FilteringContextImpl(Map<FilteringContextType, Set<HashedEntryStackWrapper>> stacks) {
-        this.async = false;
-        this.stacks = stacks;
-        for (FilteringContextType type : FilteringContextType.values()) {
-            this.stacks.computeIfAbsent(type, t -> Sets.newHashSet());
+    public static LongList hashAll(boolean async, Collection<EntryStack<?>> stacks) {
+        if (async) {
+            return LongArrayList.wrap(stacks.parallelStream().mapToLong(EntryStacks::hashExact).toArray());
+        }
+        
+        LongList hashes = new LongArrayList(stacks.size());
+        for (EntryStack<?> stack : stacks) {
+            hashes.add(EntryStacks.hashExact(stack));
+        }
+        return hashes;
+    }
+    
+    /**
+     * Returns the exact hash of a stack of this context, only hashing the stack
+     * if it did not originate from this context.
+     *
+     * @param stack the stack
+     * @return the exact hash of the stack
+     */
+    public long hashOf(EntryStack<?> stack) {
+        long hash = this.hashes.getOrDefault(stack, 0L);
+        if (hash == 0L && !this.hashes.containsKey(stack)) {
+            return EntryStacks.hashExact(stack);
         }
+        return hash;
     }
     
     @Override
@@ -99,65 +139,39 @@ public class FilteringContextImpl implements FilteringContext {
     }
     
     private Collection<EntryStack<?>> getStacksFacing(FilteringContextType type) {
-        Set<HashedEntryStackWrapper> wrappers = this.stacks.get(type);
-        if (wrappers == null || wrappers.isEmpty()) return List.of();
-        return new AbstractSet<>() {
-            @Override
-            public Iterator<EntryStack<?>> iterator() {
-                return Iterators.transform(wrappers.iterator(), HashedEntryStackWrapper::unwrap);
-            }
-            
-            @Override
-            public int size() {
-                return wrappers.size();
-            }
-        };
+        Long2ObjectMap<EntryStack<?>> map = this.stacks.get(type);
+        if (map == null || map.isEmpty()) return List.of();
+        return Collections.unmodifiableCollection(map.values());
     }
     
     private LongCollection getHashesFacing(FilteringContextType type) {
-        Set<HashedEntryStackWrapper> wrappers = this.stacks.get(type);
-        if (wrappers == null || wrappers.isEmpty()) return LongSets.emptySet();
-        return new AbstractLongSet() {
-            @Override
-            public LongIterator iterator() {
-                Iterator<HashedEntryStackWrapper> iterator = wrappers.iterator();
-                return new AbstractLongIterator() {
-                    @Override
-                    public long nextLong() {
-                        return iterator.next().hashExact();
-                    }
-                    
-                    @Override
-                    public boolean hasNext() {
-                        return iterator.hasNext();
-                    }
-                };
-            }
-            
-            @Override
-            public int size() {
-                return wrappers.size();
-            }
-        };
+        Long2ObjectMap<EntryStack<?>> map = this.stacks.get(type);
+        if (map == null || map.isEmpty()) return LongSets.emptySet();
+        return LongSets.unmodifiable(map.keySet());
+    }
+    
+    public FilteringResultImpl createResult() {
+        return new FilteringResultImpl(this);
     }
     
     public void handleResult(FilteringResultImpl result) {
-        Collection<HashedEntryStackWrapper> hiddenStacks = result.hiddenStacks;
-        Collection<HashedEntryStackWrapper> shownStacks = result.shownStacks;
+        Long2ObjectMap<EntryStack<?>> hiddenStacks = result.hiddenStacks;
+        Long2ObjectMap<EntryStack<?>> shownStacks = result.shownStacks;
+        if (hiddenStacks.isEmpty() && shownStacks.isEmpty()) return;
         
         if (async) {
             List<CompletableFuture<Void>> completableFutures = Lists.newArrayList();
             completableFutures.add(CompletableFuture.runAsync(() -> {
-                this.stacks.get(FilteringContextType.DEFAULT).removeAll(hiddenStacks);
-                this.stacks.get(FilteringContextType.DEFAULT).removeAll(shownStacks);
+                removeAll(this.stacks.get(FilteringContextType.DEFAULT), hiddenStacks);
+                removeAll(this.stacks.get(FilteringContextType.DEFAULT), shownStacks);
             }));
             completableFutures.add(CompletableFuture.runAsync(() -> {
-                this.stacks.get(FilteringContextType.SHOWN).removeAll(hiddenStacks);
-                this.stacks.get(FilteringContextType.SHOWN).addAll(shownStacks);
+                removeAll(this.stacks.get(FilteringContextType.SHOWN), hiddenStacks);
+                this.stacks.get(FilteringContextType.SHOWN).putAll(shownStacks);
             }));
             completableFutures.add(CompletableFuture.runAsync(() -> {
-                this.stacks.get(FilteringContextType.HIDDEN).addAll(hiddenStacks);
-                this.stacks.get(FilteringContextType.HIDDEN).removeAll(shownStacks);
+                this.stacks.get(FilteringContextType.HIDDEN).putAll(hiddenStacks);
+                removeAll(this.stacks.get(FilteringContextType.HIDDEN), shownStacks);
             }));
             try {
                 CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
@@ -165,12 +179,20 @@ public class FilteringContextImpl implements FilteringContext {
                 e.printStackTrace();
             }
         } else {
-            this.stacks.get(FilteringContextType.DEFAULT).removeAll(hiddenStacks);
-            this.stacks.get(FilteringContextType.DEFAULT).removeAll(shownStacks);
-            this.stacks.get(FilteringContextType.SHOWN).removeAll(hiddenStacks);
-            this.stacks.get(FilteringContextType.SHOWN).addAll(shownStacks);
-            this.stacks.get(FilteringContextType.HIDDEN).addAll(hiddenStacks);
-            this.stacks.get(FilteringContextType.HIDDEN).removeAll(shownStacks);
+            removeAll(this.stacks.get(FilteringContextType.DEFAULT), hiddenStacks);
+            removeAll(this.stacks.get(FilteringContextType.DEFAULT), shownStacks);
+            removeAll(this.stacks.get(FilteringContextType.SHOWN), hiddenStacks);
+            this.stacks.get(FilteringContextType.SHOWN).putAll(shownStacks);
+            this.stacks.get(FilteringContextType.HIDDEN).putAll(hiddenStacks);
+            removeAll(this.stacks.get(FilteringContextType.HIDDEN), shownStacks);
+        }
+    }
+    
+    private static void removeAll(Long2ObjectMap<EntryStack<?>> from, Long2ObjectMap<EntryStack<?>> stacks) {
+        if (from.isEmpty()) return;
+        LongIterator iterator = stacks.keySet().iterator();
+        while (iterator.hasNext()) {
+            from.remove(iterator.nextLong());
         }
     }
 }
@@ -23,50 +23,67 @@
 
 package me.shedaniel.rei.impl.client.entry.filtering;
 
-import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringResult;
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.api.common.util.CollectionUtils;
-import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
+import me.shedaniel.rei.api.common.util.EntryStacks;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 @Environment(EnvType.CLIENT)
 public class FilteringResultImpl implements FilteringResult {
-    public final Set<HashedEntryStackWrapper> hiddenStacks, shownStacks;
+    public final Long2ObjectMap<EntryStack<?>> hiddenStacks, shownStacks;
+    @Nullable
+    private final FilteringContextImpl context;
     
     public FilteringResultImpl(List<? extends EntryStack<?>> hiddenStacks, List<? extends EntryStack<?>> shownStacks) {
-        this.hiddenStacks = Sets.newHashSetWithExpectedSize(hiddenStacks.size());
-        this.shownStacks = Sets.newHashSetWithExpectedSize(shownStacks.size());
+        this.context = null;
+        this.hiddenStacks = new Long2ObjectOpenHashMap<>(hiddenStacks.size());
+        this.shownStacks = new Long2ObjectOpenHashMap<>(shownStacks.size());
         hide(hiddenStacks);
         show(shownStacks);
     }
     
+    public FilteringResultImpl(FilteringContextImpl context) {
+        this.context = context;
+        this.hiddenStacks = new Long2ObjectOpenHashMap<>();
+        this.shownStacks = new Long2ObjectOpenHashMap<>();
+    }
+    
+    private long hashOf(EntryStack<?> stack) {
+        return context == null ? EntryStacks.hashExact(stack) : context.hashOf(stack);
+    }
+    
     @Override
     public FilteringResult hide(EntryStack<?> stack) {
-        this.hiddenStacks.add(new HashedEntryStackWrapper(stack));
+        this.hiddenStacks.put(hashOf(stack), stack);
         return this;
     }
     
     @Override
     public FilteringResult hide(Collection<? extends EntryStack<?>> stacks) {
-        this.hiddenStacks.addAll(CollectionUtils.map(stacks, HashedEntryStackWrapper::new));
+        for (EntryStack<?> stack : stacks) {
+            this.hiddenStacks.put(hashOf(stack), stack);
+        }
         return this;
     }
     
     @Override
     public FilteringResult show(EntryStack<?> stack) {
-        this.shownStacks.add(new HashedEntryStackWrapper(stack));
+        this.shownStacks.put(hashOf(stack), stack);
         return this;
     }
     
     @Override
     public FilteringResult show(Collection<? extends EntryStack<?>> stacks) {
-        this.shownStacks.addAll(CollectionUtils.map(stacks, HashedEntryStackWrapper::new));
+        for (EntryStack<?> stack : stacks) {
+            this.shownStacks.put(hashOf(stack), stack);
+        }
         return this;
     }
 }
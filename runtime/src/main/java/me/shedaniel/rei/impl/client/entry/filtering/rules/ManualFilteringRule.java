@@ -24,6 +24,8 @@
 package me.shedaniel.rei.impl.client.entry.filtering.rules;
 
 import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import me.shedaniel.rei.api.client.config.ConfigObject;
@@ -32,16 +34,15 @@ import me.shedaniel.rei.api.client.entry.filtering.*;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.api.common.util.EntryStacks;
-import me.shedaniel.rei.impl.client.util.ThreadCreator;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class ManualFilteringRule implements FilteringRule<LongSet> {
-    private static final ExecutorService EXECUTOR_SERVICE = new ThreadCreator("REI-ManualFiltering").asService();
-    
     @Override
     public FilteringRuleType<? extends FilteringRule<LongSet>> getType() {
         return ManualFilteringRuleType.INSTANCE;
@@ -52,7 +53,8 @@ public class ManualFilteringRule implements FilteringRule<LongSet> {
         if (async) {
             LongSet all = new LongOpenHashSet();
             List<CompletableFuture<LongSet>> completableFutures = Lists.newArrayList();
-            for (Iterable<EntryStackProvider<?>> partitionStacks : CollectionUtils.partition(ConfigObject.getInstance().getFilteredStackProviders(), 100)) {
+            List<EntryStackProvider<?>> providers = ConfigObject.getInstance().getFilteredStackProviders();
+            for (Iterable<EntryStackProvider<?>> partitionStacks : CollectionUtils.partition(providers, ComputeExecutor.chunkSize(providers.size()))) {
                 completableFutures.add(CompletableFuture.supplyAsync(() -> {
                     LongSet output = new LongOpenHashSet();
                     for (EntryStackProvider<?> provider : partitionStacks) {
@@ -61,7 +63,7 @@ public class ManualFilteringRule implements FilteringRule<LongSet> {
                         }
                     }
                     return output;
-                }, EXECUTOR_SERVICE));
+                }, ComputeExecutor.get()));
             }
             try {
                 CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
@@ -83,12 +85,20 @@ public class ManualFilteringRule implements FilteringRule<LongSet> {
     @Override
     public FilteringResult processFilteredStacks(FilteringContext context, FilteringResultFactory resultFactory, LongSet cache, boolean async) {
         FilteringResult result = resultFactory.create();
-        processList(context.getShownStacks(), result, async, cache);
-        processList(context.getUnsetStacks(), result, async, cache);
+        processList(context.getShownStacks(), context.getShownExactHashes(), result, cache);
+        processList(context.getUnsetStacks(), context.getUnsetExactHashes(), result, cache);
         return result;
     }
     
-    private void processList(Collection<EntryStack<?>> stacks, FilteringResult result, boolean async, LongSet filteredStacks) {
-        result.hide((async ? stacks.parallelStream() : stacks.stream()).filter(stack -> filteredStacks.contains(EntryStacks.hashExact(stack))).collect(Collectors.toList()));
+    private void processList(Collection<EntryStack<?>> stacks, LongCollection hashes, FilteringResult result, LongSet filteredStacks) {
+        if (filteredStacks.isEmpty()) return;
+        List<EntryStack<?>> hidden = new ArrayList<>();
+        LongIterator iterator = hashes.iterator();
+        for (EntryStack<?> stack : stacks) {
+            if (filteredStacks.contains(iterator.nextLong())) {
+                hidden.add(stack);
+            }
+        }
+        result.hide(hidden);
     }
 }
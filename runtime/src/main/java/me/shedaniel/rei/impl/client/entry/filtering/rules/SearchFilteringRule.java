@@ -24,26 +24,33 @@
 package me.shedaniel.rei.impl.client.entry.filtering.rules;
 
 import com.google.common.base.Suppliers;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.entry.filtering.*;
 import me.shedaniel.rei.api.client.search.SearchFilter;
 import me.shedaniel.rei.api.client.search.SearchProvider;
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.impl.client.util.ThreadCreator;
+import me.shedaniel.rei.api.common.util.CollectionUtils;
+import me.shedaniel.rei.impl.client.entry.filtering.PersistableFilteringRule;
+import me.shedaniel.rei.impl.client.search.SearchProviderImpl;
+import me.shedaniel.rei.impl.client.search.argument.type.TagArgumentType;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
 import net.minecraft.util.StringUtil;
 import net.minecraft.util.Unit;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 
 @Environment(EnvType.CLIENT)
-public class SearchFilteringRule implements FilteringRule<Unit> {
-    private static final ExecutorService EXECUTOR_SERVICE = new ThreadCreator("REI-SearchFiltering").asService();
+public class SearchFilteringRule implements FilteringRule<Unit>, PersistableFilteringRule {
     String filterStr;
     Supplier<SearchFilter> filter;
     boolean show;
@@ -66,12 +73,26 @@ public class SearchFilteringRule implements FilteringRule<Unit> {
         return SearchFilteringRuleType.INSTANCE;
     }
     
+    @Override
+    @Nullable
+    public String getPersistenceKey() {
+        SearchFilter searchFilter = filter.get();
+        // Tags are synced from the server, and may change without any changes to the rule or the entries
+        if (searchFilter instanceof SearchProviderImpl.SearchFilterImpl filterImpl && CollectionUtils.anyMatch(filterImpl.getArgumentTypes(), TagArgumentType.class::isInstance)) {
+            return null;
+        }
+        // The search modes decide which arguments are matched, and so which entries the filter matches
+        ConfigObject config = ConfigObject.getInstance();
+        return filterStr + "|" + show + "|" + config.getInputMethodId() + "|" + Minecraft.getInstance().options.languageCode
+                + "|" + config.getTooltipSearchMode() + "|" + config.getTagSearchMode() + "|" + config.getIdentifierSearchMode() + "|" + config.getModSearchMode();
+    }
+    
     @Override
     public FilteringResult processFilteredStacks(FilteringContext context, FilteringResultFactory resultFactory, Unit cache, boolean async) {
         List<CompletableFuture<List<EntryStack<?>>>> completableFutures = Lists.newArrayList();
-        processList(context.getUnsetStacks(), completableFutures);
-        if (show) processList(context.getHiddenStacks(), completableFutures);
-        else processList(context.getShownStacks(), completableFutures);
+        processList(context.getUnsetStacks(), context.getUnsetExactHashes(), async, completableFutures);
+        if (show) processList(context.getHiddenStacks(), context.getHiddenExactHashes(), async, completableFutures);
+        else processList(context.getShownStacks(), context.getShownExactHashes(), async, completableFutures);
         try {
             CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[0])).get(90, TimeUnit.SECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
@@ -91,17 +112,31 @@ public class SearchFilteringRule implements FilteringRule<Unit> {
         return result;
     }
     
-    private void processList(Collection<EntryStack<?>> stacks, List<CompletableFuture<List<EntryStack<?>>>> completableFutures) {
-        for (Iterable<EntryStack<?>> partitionStacks : (Iterable<List<EntryStack<?>>>) () -> Iterators.partition(stacks.iterator(), 100)) {
-            completableFutures.add(CompletableFuture.supplyAsync(() -> {
+    private void processList(Collection<EntryStack<?>> stacks, LongCollection hashes, boolean async, List<CompletableFuture<List<EntryStack<?>>>> completableFutures) {
+        if (stacks.isEmpty()) return;
+        // The hashes are the exact hashes the search argument cache is keyed by, passing them avoids rehashing every stack
+        List<EntryStack<?>> stackList = stacks instanceof List<EntryStack<?>> list ? list : new ArrayList<>(stacks);
+        long[] hashArray = hashes.toLongArray();
+        SearchFilter searchFilter = filter.get();
+        int size = stackList.size();
+        int chunkSize = async ? ComputeExecutor.chunkSize(size) : size;
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start, to = Math.min(size, start + chunkSize);
+            Supplier<List<EntryStack<?>>> task = () -> {
                 List<EntryStack<?>> output = Lists.newArrayList();
-                for (EntryStack<?> stack : partitionStacks) {
-                    if (stack != null && filter.get().test(stack)) {
+                for (int i = from; i < to; i++) {
+                    EntryStack<?> stack = stackList.get(i);
+                    if (stack != null && searchFilter.test(stack, hashArray[i])) {
                         output.add(stack);
                     }
                 }
                 return output;
-            }, EXECUTOR_SERVICE));
+            };
+            if (async && to - from < size) {
+                completableFutures.add(CompletableFuture.supplyAsync(task, ComputeExecutor.get()));
+            } else {
+                completableFutures.add(CompletableFuture.completedFuture(task.get()));
+            }
         }
     }
 }
@@ -33,12 +33,21 @@ import net.minecraft.world.inventory.AbstractContainerMenu;
 public class CraftableFilter {
     public static final CraftableFilter INSTANCE = new CraftableFilter();
     private boolean dirty = false;
+    private int revision = 0;
     private Long2LongMap invStacks = new Long2LongOpenHashMap();
     private Long2LongMap containerStacks = new Long2LongOpenHashMap();
     private long menuId = -2;
     
     public void markDirty() {
         dirty = true;
+        revision++;
+    }
+    
+    /**
+     * Returns a counter that changes every time the inventory or the open menu changes.
+     */
+    public int getRevision() {
+        return revision;
     }
     
     public boolean wasDirty() {
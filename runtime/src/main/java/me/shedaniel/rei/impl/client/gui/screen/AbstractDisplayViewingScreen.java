@@ -58,6 +58,7 @@ import me.shedaniel.rei.impl.client.gui.widget.TabContainerWidget;
 import me.shedaniel.rei.impl.client.gui.widget.entrylist.EntryListWidget;
 import me.shedaniel.rei.impl.client.util.ClientTickCounter;
 import me.shedaniel.rei.impl.client.util.CyclingList;
+import me.shedaniel.rei.impl.client.view.ViewBuild;
 import me.shedaniel.rei.impl.display.DisplaySpec;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
@@ -91,17 +92,68 @@ public abstract class AbstractDisplayViewingScreen extends Screen implements Dis
     protected int selectedCategoryIndex = 0;
     protected int categoryPages = -1;
     protected Rectangle bounds;
+    @Nullable
+    private ViewBuild build;
+    @Nullable
+    private final CategoryIdentifier<?> preferredCategory;
+    private boolean categoryChosen = false;
     
     protected AbstractDisplayViewingScreen(Map<DisplayCategory<?>, List<DisplaySpec>> categoryMap, @Nullable CategoryIdentifier<?> category) {
         super(Component.empty());
         this.categoryMap = categoryMap;
         this.categories = Lists.newArrayList(categoryMap.keySet());
+        this.preferredCategory = category;
         if (category != null) {
             selectCategory(category, false);
         }
     }
     
+    /**
+     * Fills this screen with the categories of a build that is still running, as they become final.
+     * The build must share its {@link ViewBuild#getSpecs() specs} with the category map of this screen.
+     */
+    public void streamFrom(ViewBuild build) {
+        this.build = build;
+    }
+    
+    @Override
+    public void tick() {
+        super.tick();
+        if (this.build != null) {
+            if (this.build.poll(this::onCategoryAdded)) {
+                recalculateCategoryPage();
+                this.tabs.updateScroll(categories, selectedCategoryIndex, 0);
+                init();
+            }
+            if (this.build.isDone()) {
+                this.build = null;
+            }
+        }
+    }
+    
+    /**
+     * Called when a category of a streamed build was added to {@link #categoryMap}, keeping the selected category.
+     */
+    protected void onCategoryAdded(DisplayCategory<?> category) {
+        DisplayCategory<?> selectedCategory = categories.get(selectedCategoryIndex);
+        categories.clear();
+        categories.addAll(categoryMap.keySet());
+        if (!categoryChosen && category.getCategoryIdentifier().equals(preferredCategory)) {
+            selectedCategory = category;
+        }
+        this.selectedCategoryIndex = categories.indexOf(selectedCategory);
+    }
+    
+    @Override
+    public void onClose() {
+        if (this.build != null) {
+            this.build.cancel();
+        }
+        super.onClose();
+    }
+    
     protected void selectCategory(CategoryIdentifier<?> category) {
+        this.categoryChosen = true;
         selectCategory(category, true);
     }
     
@@ -91,13 +91,23 @@ public class DefaultDisplayViewingScreen extends AbstractDisplayViewingScreen {
     @Nullable
     private Panel workingStationsBaseWidget;
     private Button recipeBack, recipeNext, categoryBack, categoryNext;
-    private final int bestWidthDisplay;
+    private int bestWidthDisplay;
     
     public DefaultDisplayViewingScreen(Map<DisplayCategory<?>, List<DisplaySpec>> categoriesMap, @Nullable CategoryIdentifier<?> category) {
         super(categoriesMap, category);
         this.bounds = new Rectangle(0, 0, 176, 150);
+        this.bestWidthDisplay = calculateBestWidthDisplay();
+    }
+    
+    @Override
+    protected void onCategoryAdded(DisplayCategory<?> category) {
+        super.onCategoryAdded(category);
+        this.bestWidthDisplay = calculateBestWidthDisplay();
+    }
+    
+    private int calculateBestWidthDisplay() {
         //noinspection RedundantCast
-        List<Integer> list = CollectionUtils.mapAndFilter(categoriesMap.entrySet(), Objects::nonNull, entry -> ((Optional<Integer>) CollectionUtils.<DisplaySpec, Integer>mapAndMax(entry.getValue(),
+        List<Integer> list = CollectionUtils.mapAndFilter(categoryMap.entrySet(), Objects::nonNull, entry -> ((Optional<Integer>) CollectionUtils.<DisplaySpec, Integer>mapAndMax(entry.getValue(),
                 display -> ((DisplayCategory<Display>) entry.getKey()).getDisplayWidth(display.provideInternalDisplay()), Comparator.naturalOrder())).orElse(null));
         list.sort(Comparator.naturalOrder());
         int mode = list.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting())).entrySet().stream()
@@ -105,7 +115,7 @@ public class DefaultDisplayViewingScreen extends AbstractDisplayViewingScreen {
                 .map(Map.Entry::getKey)
                 .orElse(150);
         int median = list.size() % 2 == 0 ? (list.get(list.size() / 2) + list.get(list.size() / 2 - 1)) / 2 : list.get(list.size() / 2);
-        this.bestWidthDisplay = (int) Math.round((mode * 0.5 + median * 1.5) / 2.0);
+        return (int) Math.round((mode * 0.5 + median * 1.5) / 2.0);
     }
     
     @Override
@@ -25,6 +25,8 @@ package me.shedaniel.rei.impl.client.registry.category;
 
 import com.google.common.base.MoreObjects;
 import dev.architectury.event.EventResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.plugins.REIClientPlugin;
 import me.shedaniel.rei.api.client.registry.category.ButtonArea;
@@ -36,8 +38,14 @@ import me.shedaniel.rei.api.client.registry.display.DisplayCategoryView;
 import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.type.EntryTypeRegistry;
+import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.impl.common.InternalLogger;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientImpl;
+import me.shedaniel.rei.impl.common.entry.type.EntryTypeRegistryImpl;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.function.Consumer;
@@ -48,6 +56,8 @@ public class CategoryRegistryImpl implements CategoryRegistry {
     private final Map<CategoryIdentifier<?>, Configuration<?>> categories = new LinkedHashMap<>();
     private final Map<CategoryIdentifier<?>, List<Consumer<CategoryConfiguration<?>>>> listeners = new HashMap<>();
     private final List<CategoryVisibilityPredicate> visibilityPredicates = new ArrayList<>();
+    @Nullable
+    private volatile WorkstationIndex workstationIndex;
     
     @Override
     public void acceptPlugin(REIClientPlugin plugin) {
@@ -56,7 +66,10 @@ public class CategoryRegistryImpl implements CategoryRegistry {
     
     @Override
     public void startReload() {
-        this.categories.clear();
+        synchronized (this) {
+            this.categories.clear();
+            this.workstationIndex = null;
+        }
         this.listeners.clear();
         this.visibilityPredicates.clear();
         this.registerVisibilityPredicate(category -> ConfigObject.getInstance().getHiddenCategories().contains(category.getCategoryIdentifier())
@@ -68,12 +81,18 @@ public class CategoryRegistryImpl implements CategoryRegistry {
         InternalLogger.getInstance().debug("Registered %d categories: %s", this.categories.size(),
                 this.categories.values().stream().map(configuration -> configuration.getCategory().getTitle().getString())
                         .collect(Collectors.joining(", ")));
+        synchronized (this) {
+            this.workstationIndex = buildWorkstationIndex();
+        }
     }
     
     @Override
     public <T extends Display> void add(DisplayCategory<T> category, Consumer<CategoryConfiguration<T>> configurator) {
-        Configuration<T> configuration = new Configuration<>(category);
-        this.categories.put(category.getCategoryIdentifier(), configuration);
+        Configuration<T> configuration = new Configuration<>(this, category);
+        synchronized (this) {
+            this.categories.put(category.getCategoryIdentifier(), configuration);
+            this.workstationIndex = null;
+        }
         configurator.accept(configuration);
         
         List<Consumer<CategoryConfiguration<?>>> listeners = this.listeners.get(category.getCategoryIdentifier());
@@ -145,7 +164,84 @@ public class CategoryRegistryImpl implements CategoryRegistry {
         return Collections.unmodifiableList(visibilityPredicates);
     }
     
+    /**
+     * Returns the categories the stack is a workstation of, in registration order.
+     *
+     * @param stack the stack to look up
+     * @return the identifiers of the categories
+     */
+    public List<CategoryIdentifier<?>> getCategoriesByWorkstation(EntryStack<?> stack) {
+        WorkstationIndex index = workstationIndex();
+        Collection<CategoryIdentifier<?>> candidates;
+        if (((EntryTypeRegistryImpl) EntryTypeRegistry.getInstance()).hasBridges(stack.getType())) {
+            // Bridged stacks may equal workstations of another type, whose hashes differ
+            candidates = index.workstations().keySet();
+        } else {
+            candidates = index.categoriesByHash().getOrDefault(EntryStacks.hashFuzzy(stack), List.of());
+        }
+        List<CategoryIdentifier<?>> categories = null;
+        for (CategoryIdentifier<?> categoryId : candidates) {
+            for (EntryIngredient ingredient : index.workstations().get(categoryId)) {
+                if (EntryIngredientImpl.containsFuzzy(ingredient, stack)) {
+                    if (categories == null) categories = new ArrayList<>(candidates.size());
+                    categories.add(categoryId);
+                    break;
+                }
+            }
+        }
+        return categories == null ? List.of() : categories;
+    }
+    
+    private WorkstationIndex workstationIndex() {
+        WorkstationIndex index = this.workstationIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.workstationIndex;
+                if (index == null) {
+                    this.workstationIndex = index = buildWorkstationIndex();
+                }
+            }
+        }
+        return index;
+    }
+    
+    private synchronized void invalidateWorkstationIndex() {
+        this.workstationIndex = null;
+    }
+    
+    /**
+     * Indexes the categories by the fuzzy hashes of their workstations, so workstation checks do not
+     * have to scan the workstations of every category. The index holds a copy of the workstations, and
+     * is rebuilt lazily when a category or a workstation is added after the reload.
+     */
+    private WorkstationIndex buildWorkstationIndex() {
+        Long2ObjectMap<List<CategoryIdentifier<?>>> index = new Long2ObjectOpenHashMap<>();
+        Map<CategoryIdentifier<?>, List<EntryIngredient>> workstationsByCategory = new LinkedHashMap<>();
+        for (Configuration<?> configuration : this.categories.values()) {
+            CategoryIdentifier<?> categoryId = configuration.getCategoryIdentifier();
+            List<EntryIngredient> workstations;
+            synchronized (configuration.workstations) {
+                workstations = List.copyOf(configuration.workstations);
+            }
+            if (workstations.isEmpty()) continue;
+            workstationsByCategory.put(categoryId, workstations);
+            for (EntryIngredient ingredient : workstations) {
+                for (EntryStack<?> stack : ingredient) {
+                    List<CategoryIdentifier<?>> categories = index.computeIfAbsent(EntryStacks.hashFuzzy(stack), key -> new ArrayList<>(1));
+                    if (categories.isEmpty() || categories.get(categories.size() - 1) != categoryId) {
+                        categories.add(categoryId);
+                    }
+                }
+            }
+        }
+        return new WorkstationIndex(index, Collections.unmodifiableMap(workstationsByCategory));
+    }
+    
+    private record WorkstationIndex(Long2ObjectMap<List<CategoryIdentifier<?>>> categoriesByHash,
+                                    Map<CategoryIdentifier<?>, List<EntryIngredient>> workstations) {}
+    
     private static class Configuration<T extends Display> implements CategoryConfiguration<T> {
+        private final CategoryRegistryImpl registry;
         private final DisplayCategory<T> category;
         private final List<EntryIngredient> workstations = Collections.synchronizedList(new ArrayList<>());
         private final List<CategoryExtensionProvider<T>> extensionProviders = Collections.synchronizedList(new ArrayList<>());
@@ -153,13 +249,15 @@ public class CategoryRegistryImpl implements CategoryRegistry {
         
         private ButtonArea plusButtonArea = ButtonArea.defaultArea();
         
-        public Configuration(DisplayCategory<T> category) {
+        public Configuration(CategoryRegistryImpl registry, DisplayCategory<T> category) {
+            this.registry = registry;
             this.category = category;
         }
         
         @Override
         public void addWorkstations(EntryIngredient... stations) {
             this.workstations.addAll(Arrays.asList(stations));
+            this.registry.invalidateWorkstationIndex();
         }
         
         @Override
@@ -42,6 +42,29 @@ public interface DisplayCache {
     
     boolean isCached(Display display);
     
+    /**
+     * Returns the ordinal of the display, displays added later have larger ordinals.
+     *
+     * @param display the display
+     * @return the ordinal of the display, or {@code -1} if the display is not in the cache
+     */
+    int ordinalOf(Display display);
+    
+    /**
+     * Returns the number of ordinals handed out so far, every ordinal is smaller than this.
+     */
+    int ordinalCount();
+    
+    /**
+     * Returns the structural hash of the display, which covers its category and the exact hashes of its
+     * inputs and outputs. Displays merged by {@link me.shedaniel.rei.api.client.registry.display.DisplayCategory#getContentMerger()}
+     * always have the same structural hash. The hash is computed once when the display is registered.
+     *
+     * @param display the display
+     * @return the structural hash of the display
+     */
+    long structuralHashOf(Display display);
+    
     void add(Display display);
     
     boolean remove(Display display);
@@ -50,17 +73,17 @@ public interface DisplayCache {
     
     Set<Display> getDisplaysNotCached();
     
-    Set<Display> getDisplaysByInput(EntryStack<?> stack);
+    List<Display> getDisplaysByInput(EntryStack<?> stack);
     
-    Set<Display> getDisplaysByOutput(EntryStack<?> stack);
+    List<Display> getDisplaysByOutput(EntryStack<?> stack);
     
     default Iterable<Display> getAllDisplaysByInputs(List<EntryStack<?>> stacks) {
         if (stacks.isEmpty()) return List.of();
         Iterable<Display> inputCached = null;
         if (doesCache()) {
             for (EntryStack<?> stack : stacks) {
-                Set<Display> set = getDisplaysByInput(stack);
-                inputCached = inputCached == null ? set : Iterables.concat(inputCached, set);
+                List<Display> displays = getDisplaysByInput(stack);
+                inputCached = inputCached == null ? displays : Iterables.concat(inputCached, displays);
             }
             if (stacks.size() > 1) inputCached = CollectionUtils.distinctReferenceOf(inputCached);
         }
@@ -77,8 +100,8 @@ public interface DisplayCache {
         Iterable<Display> outputCached = null;
         if (doesCache()) {
             for (EntryStack<?> stack : stacks) {
-                Set<Display> set = getDisplaysByOutput(stack);
-                outputCached = outputCached == null ? set : Iterables.concat(outputCached, set);
+                List<Display> displays = getDisplaysByOutput(stack);
+                outputCached = outputCached == null ? displays : Iterables.concat(outputCached, displays);
             }
             if (stacks.size() > 1) outputCached = CollectionUtils.distinctReferenceOf(outputCached);
         }
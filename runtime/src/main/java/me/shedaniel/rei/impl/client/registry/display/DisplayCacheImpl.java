@@ -24,33 +24,50 @@
 package me.shedaniel.rei.impl.client.registry.display;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
-import it.unimi.dsi.fastutil.Hash;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import it.unimi.dsi.fastutil.longs.*;
+import it.unimi.dsi.fastutil.objects.ObjectImmutableList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.entry.EntryIngredient;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.common.InternalLogger;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientImpl;
+import me.shedaniel.rei.impl.common.util.HashMixer;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
+/**
+ * Mutated only under the write lock of its {@link DisplaysHolderImpl}, including runtime additions and
+ * removals, while lookups take the read lock so that an async view build never observes a half-updated index.
+ */
 public class DisplayCacheImpl implements DisplayCache {
     private final boolean cache;
+    private final ReadWriteLock lock;
     private Set<Display> displaysCached = new ReferenceOpenHashSet<>();
     private Set<Display> displaysNotCached = Collections.synchronizedSet(new ReferenceOpenHashSet<>());
-    private SetMultimap<EntryStack<?>, Display> displaysByInput;
-    private SetMultimap<EntryStack<?>, Display> displaysByOutput;
+    private final Reference2IntMap<Display> ordinals = new Reference2IntOpenHashMap<>();
+    private volatile Display[] displaysByOrdinal = new Display[0];
+    private int nextOrdinal;
+    private volatile long[] structuralHashes = new long[0];
+    private boolean hashed = false;
+    private DisplayIndex displaysByInput = new DisplayIndex(Display::getInputEntries, this::ordinalOf, this::displayAt);
+    private DisplayIndex displaysByOutput = new DisplayIndex(Display::getOutputEntries, this::ordinalOf, this::displayAt);
     private boolean preprocessed = false;
     
-    public DisplayCacheImpl(boolean init) {
+    public DisplayCacheImpl(boolean init, ReadWriteLock lock) {
         this.cache = init && ConfigObject.getInstance().doesCacheDisplayLookup();
-        this.displaysByInput = createSetMultimap();
-        this.displaysByOutput = createSetMultimap();
+        this.lock = lock;
+        this.ordinals.defaultReturnValue(-1);
     }
     
     @Override
@@ -70,16 +87,67 @@ public class DisplayCacheImpl implements DisplayCache {
     
     @Override
     public boolean isCached(Display display) {
-        return this.cache && this.displaysCached.contains(display);
+        if (!this.cache) return false;
+        this.lock.readLock().lock();
+        try {
+            return this.displaysCached.contains(display);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public int ordinalOf(Display display) {
+        synchronized (this.ordinals) {
+            return this.ordinals.getInt(display);
+        }
+    }
+    
+    @Override
+    public int ordinalCount() {
+        synchronized (this.ordinals) {
+            return this.nextOrdinal;
+        }
+    }
+    
+    @Nullable
+    private Display displayAt(int ordinal) {
+        Display[] displays = this.displaysByOrdinal;
+        return ordinal >= 0 && ordinal < displays.length ? displays[ordinal] : null;
+    }
+    
+    @Override
+    public long structuralHashOf(Display display) {
+        int ordinal = ordinalOf(display);
+        long[] hashes = this.structuralHashes;
+        if (ordinal >= 0 && ordinal < hashes.length && hashes[ordinal] != 0) {
+            return hashes[ordinal];
+        }
+        return structuralHash(display);
     }
     
     @Override
     public void add(Display display) {
+        int ordinal;
+        synchronized (this.ordinals) {
+            ordinal = this.nextOrdinal++;
+            this.ordinals.put(display, ordinal);
+            if (ordinal >= this.displaysByOrdinal.length) {
+                this.displaysByOrdinal = Arrays.copyOf(this.displaysByOrdinal, Math.max(16, this.displaysByOrdinal.length * 2));
+            }
+            this.displaysByOrdinal[ordinal] = display;
+            if (this.hashed) {
+                long[] hashes = Arrays.copyOf(this.structuralHashes, Math.max(ordinal + 1, this.structuralHashes.length));
+                hashes[ordinal] = structuralHash(display);
+                this.structuralHashes = hashes;
+            }
+        }
         if (this.cache) {
             if (!this.preprocessed) {
                 this.displaysNotCached.add(display);
             } else {
-                this.process(display);
+                this.displaysByInput.add(display, ordinal);
+                this.displaysByOutput.add(display, ordinal);
                 this.displaysCached.add(display);
             }
         } else {
@@ -89,22 +157,21 @@ public class DisplayCacheImpl implements DisplayCache {
     
     @Override
     public boolean remove(Display display) {
+        int ordinal;
+        synchronized (this.ordinals) {
+            ordinal = this.ordinals.removeInt(display);
+            if (ordinal >= 0) {
+                this.displaysByOrdinal[ordinal] = null;
+            }
+        }
         if (this.cache) {
             if (!this.preprocessed) {
                 return this.displaysNotCached.remove(display);
             } else {
                 boolean removed = this.displaysCached.remove(display);
                 if (removed) {
-                    for (EntryIngredient input : display.getInputEntries()) {
-                        for (EntryStack<?> stack : input) {
-                            this.displaysByInput.remove(stack, display);
-                        }
-                    }
-                    for (EntryIngredient output : display.getOutputEntries()) {
-                        for (EntryStack<?> stack : output) {
-                            this.displaysByOutput.remove(stack, display);
-                        }
-                    }
+                    this.displaysByInput.remove(display, ordinal);
+                    this.displaysByOutput.remove(display, ordinal);
                 }
                 return removed;
             }
@@ -115,6 +182,7 @@ public class DisplayCacheImpl implements DisplayCache {
     
     @Override
     public void endReload() {
+        hashDisplays();
         if (this.cache) {
             if (this.preprocessed) {
                 InternalLogger.getInstance().error("DisplayCache#endReload called after preprocessed!");
@@ -122,61 +190,415 @@ public class DisplayCacheImpl implements DisplayCache {
             
             InternalLogger.getInstance().debug("Processing %d displays for optimal lookup performance...", this.displaysNotCached.size());
             Stopwatch stopwatch = Stopwatch.createStarted();
-            this.displaysCached = new ReferenceOpenHashSet<>(this.displaysNotCached.size());
-            this.displaysByInput = createSetMultimap();
-            this.displaysByOutput = createSetMultimap();
-            for (Display display : this.displaysNotCached) {
-                this.process(display);
-            }
-            this.displaysCached.addAll(this.displaysNotCached);
+            List<Display> displays = new ArrayList<>(this.displaysNotCached);
+            displays.sort(Comparator.comparingInt(this::ordinalOf));
+            this.displaysCached = new ReferenceOpenHashSet<>(displays);
+            this.displaysByInput.build(displays);
+            this.displaysByOutput.build(displays);
             this.displaysNotCached = Set.of();
             this.preprocessed = true;
             InternalLogger.getInstance().debug("Processed displays for optimal lookup performance in %s.", stopwatch.stop());
         }
     }
     
+    /**
+     * Computes the structural hashes of every display registered so far in parallel, displays added
+     * afterwards are hashed as they are added.
+     */
+    private void hashDisplays() {
+        synchronized (this.ordinals) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            Display[] displays = Arrays.copyOf(this.displaysByOrdinal, this.nextOrdinal);
+            long[] hashes = new long[displays.length];
+            ComputeExecutor.forRange(displays.length, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    if (displays[i] != null) {
+                        hashes[i] = structuralHash(displays[i]);
+                    }
+                }
+            });
+            this.structuralHashes = hashes;
+            this.hashed = true;
+            InternalLogger.getInstance().debug("Computed structural hashes of %d displays in %s.", displays.length, stopwatch.stop());
+        }
+    }
+    
+    private static long structuralHash(Display display) {
+        long hash = HashMixer.mix(display.getCategoryIdentifier().hashCode());
+        hash = hashIngredients(hash, display.getInputEntries());
+        return hashIngredients(hash, display.getOutputEntries());
+    }
+    
+    private static long hashIngredients(long hash, List<EntryIngredient> ingredients) {
+        hash = HashMixer.combine(hash, ingredients.size());
+        for (EntryIngredient ingredient : ingredients) {
+            hash = HashMixer.combine(hash, ingredient.size());
+            for (EntryStack<?> stack : ingredient) {
+                hash = HashMixer.combine(hash, EntryStacks.hashExact(stack));
+            }
+        }
+        return hash;
+    }
+    
     @Override
     public Set<Display> getDisplaysNotCached() {
         return this.displaysNotCached;
     }
     
     @Override
-    public Set<Display> getDisplaysByInput(EntryStack<?> stack) {
-        return this.displaysByInput.get(stack);
+    public List<Display> getDisplaysByInput(EntryStack<?> stack) {
+        this.lock.readLock().lock();
+        try {
+            return this.displaysByInput.get(stack);
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
     
     @Override
-    public Set<Display> getDisplaysByOutput(EntryStack<?> stack) {
-        return this.displaysByOutput.get(stack);
+    public List<Display> getDisplaysByOutput(EntryStack<?> stack) {
+        this.lock.readLock().lock();
+        try {
+            return this.displaysByOutput.get(stack);
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
     
-    private void process(Display display) {
-        for (EntryIngredient input : display.getInputEntries()) {
-            for (EntryStack<?> stack : input) {
-                this.displaysByInput.put(stack, display);
+    /**
+     * Posting lists of displays by the fuzzy hashes of their input or output stacks, in registration order.
+     * The lists are split into shards by key so that every shard can be built by its own thread.
+     * <p>
+     * Large ingredients, which are mostly tags, are indexed once under a group key derived from their
+     * members instead of under every member, and a stack's groups are resolved when it is looked up.
+     * <p>
+     * The lists hold the ordinals of the displays, so merging the lists of a stack and its groups needs no
+     * lookups. Every key keeps the first stack indexed under it as its representative, and a stack only
+     * matches a key whose representative is fuzzily equal to it. Keys shared by stacks that are not fuzzily
+     * equal are marked as colliding, and the displays found under them are checked one by one.
+     */
+    static class DisplayIndex {
+        private static final int[] EMPTY = new int[0];
+        private static final int SHARDS = Integer.highestOneBit(ComputeExecutor.parallelism() * 2 - 1);
+        private static final int GROUP_THRESHOLD = 8;
+        private final Function<Display, List<EntryIngredient>> ingredients;
+        private final ToIntFunction<Display> ordinals;
+        private final IntFunction<Display> displays;
+        private final Long2ObjectMap<int[]>[] shards = new Long2ObjectMap[SHARDS];
+        Long2ObjectMap<long[]> groups = new Long2ObjectOpenHashMap<>();
+        Long2ObjectMap<long[]> groupsByMember = new Long2ObjectOpenHashMap<>();
+        private Long2ObjectMap<EntryStack<?>> representatives = new Long2ObjectOpenHashMap<>();
+        private LongSet collisions = new LongOpenHashSet();
+        
+        DisplayIndex(Function<Display, List<EntryIngredient>> ingredients, ToIntFunction<Display> ordinals, IntFunction<Display> displays) {
+            this.ingredients = ingredients;
+            this.ordinals = ordinals;
+            this.displays = displays;
+            Arrays.setAll(this.shards, shard -> new Long2ObjectOpenHashMap<>());
+        }
+        
+        private static int shardOf(long key) {
+            return (int) (key ^ key >>> 32) & (SHARDS - 1);
+        }
+        
+        private Long2ObjectMap<int[]> shard(long key) {
+            return this.shards[shardOf(key)];
+        }
+        
+        List<Display> get(EntryStack<?> stack) {
+            long key = EntryStacks.hashFuzzy(stack);
+            EntryStack<?> representative = this.representatives.get(key);
+            if (representative == null) return List.of();
+            boolean collides = this.collisions.contains(key);
+            if (!collides && !EntryStacks.equalsFuzzy(representative, stack)) return List.of();
+            List<Display> displays = collect(key);
+            return collides ? verify(displays, stack) : displays;
+        }
+        
+        private List<Display> collect(long key) {
+            int[] ordinals = shard(key).get(key);
+            long[] groups = this.groupsByMember.get(key);
+            if (groups == null) {
+                return ordinals == null ? List.of() : toDisplays(ordinals, ordinals.length);
+            }
+            List<int[]> lists = new ArrayList<>(groups.length + 1);
+            int size = 0;
+            if (ordinals != null) {
+                lists.add(ordinals);
+                size += ordinals.length;
+            }
+            for (long group : groups) {
+                int[] groupOrdinals = shard(group).get(group);
+                if (groupOrdinals != null) {
+                    lists.add(groupOrdinals);
+                    size += groupOrdinals.length;
+                }
+            }
+            if (lists.isEmpty()) return List.of();
+            if (lists.size() == 1) return toDisplays(lists.get(0), size);
+            return merge(lists, size);
+        }
+        
+        /**
+         * Merges posting lists into one list in registration order, without duplicates.
+         */
+        private List<Display> merge(List<int[]> lists, int size) {
+            int[] merged = new int[size];
+            int index = 0;
+            for (int[] ordinals : lists) {
+                System.arraycopy(ordinals, 0, merged, index, ordinals.length);
+                index += ordinals.length;
             }
+            Arrays.sort(merged);
+            int distinct = 0;
+            for (int ordinal : merged) {
+                if (distinct == 0 || merged[distinct - 1] != ordinal) {
+                    merged[distinct++] = ordinal;
+                }
+            }
+            return toDisplays(merged, distinct);
         }
-        for (EntryIngredient output : display.getOutputEntries()) {
-            for (EntryStack<?> stack : output) {
-                this.displaysByOutput.put(stack, display);
+        
+        private List<Display> toDisplays(int[] ordinals, int length) {
+            Display[] displays = new Display[length];
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                Display display = this.displays.apply(ordinals[i]);
+                if (display != null) {
+                    displays[size++] = display;
+                }
             }
+            return new ObjectImmutableList<>(size == length ? displays : Arrays.copyOf(displays, size));
         }
-    }
-    
-    private static SetMultimap<EntryStack<?>, Display> createSetMultimap() {
-        return Multimaps.newSetMultimap(
-                new Object2ObjectOpenCustomHashMap<>(5000, new Hash.Strategy<>() {
-                    @Override
-                    public int hashCode(EntryStack<?> stack) {
-                        return Long.hashCode(EntryStacks.hashFuzzy(stack));
+        
+        private List<Display> verify(List<Display> displays, EntryStack<?> stack) {
+            List<Display> verified = new ArrayList<>(displays.size());
+            for (Display display : displays) {
+                for (EntryIngredient ingredient : this.ingredients.apply(display)) {
+                    if (EntryIngredientImpl.containsFuzzy(ingredient, stack)) {
+                        verified.add(display);
+                        break;
                     }
-                    
-                    @Override
-                    public boolean equals(EntryStack<?> o1, EntryStack<?> o2) {
-                        return EntryStacks.equalsFuzzy(o1, o2);
+                }
+            }
+            return verified;
+        }
+        
+        /**
+         * Builds the posting lists in parallel. The keys of every display are collected in chunks first,
+         * then every shard sizes its lists exactly with a counting pass and fills them with a second pass
+         * over the displays in order, so the lists are in registration order regardless of scheduling.
+         */
+        void build(List<Display> displays) {
+            int[] ordinals = new int[displays.size()];
+            long[][] keys = new long[displays.size()][];
+            List<KeyChunk> chunks = Collections.synchronizedList(new ArrayList<>());
+            ComputeExecutor.forRange(displays.size(), (from, to) -> {
+                LongSet displayKeys = new LongOpenHashSet();
+                KeyChunk chunk = new KeyChunk(new Long2ObjectOpenHashMap<>(), new Long2ObjectOpenHashMap<>(), new LongOpenHashSet());
+                for (int i = from; i < to; i++) {
+                    ordinals[i] = this.ordinals.applyAsInt(displays.get(i));
+                    collectKeys(displays.get(i), displayKeys, chunk.groups(), chunk.representatives(), chunk.collisions());
+                    keys[i] = displayKeys.toLongArray();
+                }
+                chunks.add(chunk);
+            });
+            Long2ObjectMap<long[]> groups = new Long2ObjectOpenHashMap<>();
+            Long2ObjectMap<EntryStack<?>> representatives = new Long2ObjectOpenHashMap<>();
+            LongSet collisions = new LongOpenHashSet();
+            for (KeyChunk chunk : chunks) {
+                groups.putAll(chunk.groups());
+                collisions.addAll(chunk.collisions());
+                for (Long2ObjectMap.Entry<EntryStack<?>> entry : chunk.representatives().long2ObjectEntrySet()) {
+                    represent(entry.getLongKey(), entry.getValue(), representatives, collisions);
+                }
+            }
+            this.groups = groups;
+            this.groupsByMember = invertGroups(groups);
+            this.representatives = representatives;
+            this.collisions = collisions;
+            ComputeExecutor.forEach(SHARDS, shard -> this.shards[shard] = buildShard(ordinals, keys, shard));
+        }
+        
+        private static Long2ObjectMap<int[]> buildShard(int[] ordinals, long[][] keys, int shard) {
+            Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+            for (long[] displayKeys : keys) {
+                for (long key : displayKeys) {
+                    if (shardOf(key) == shard) {
+                        counts.addTo(key, 1);
                     }
-                }),
-                ReferenceOpenHashSet::new
-        );
+                }
+            }
+            Long2ObjectMap<int[]> postings = new Long2ObjectOpenHashMap<>(counts.size());
+            for (Long2IntMap.Entry entry : counts.long2IntEntrySet()) {
+                postings.put(entry.getLongKey(), new int[entry.getIntValue()]);
+            }
+            Long2IntOpenHashMap cursors = counts;
+            cursors.clear();
+            for (int i = 0; i < keys.length; i++) {
+                for (long key : keys[i]) {
+                    if (shardOf(key) == shard) {
+                        postings.get(key)[cursors.addTo(key, 1)] = ordinals[i];
+                    }
+                }
+            }
+            return postings;
+        }
+        
+        private static Long2ObjectMap<long[]> invertGroups(Long2ObjectMap<long[]> groups) {
+            Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+            for (long[] members : groups.values()) {
+                for (long member : members) {
+                    counts.addTo(member, 1);
+                }
+            }
+            Long2ObjectMap<long[]> groupsByMember = new Long2ObjectOpenHashMap<>(counts.size());
+            for (Long2IntMap.Entry entry : counts.long2IntEntrySet()) {
+                groupsByMember.put(entry.getLongKey(), new long[entry.getIntValue()]);
+            }
+            Long2IntOpenHashMap cursors = counts;
+            cursors.clear();
+            for (Long2ObjectMap.Entry<long[]> group : groups.long2ObjectEntrySet()) {
+                for (long member : group.getValue()) {
+                    groupsByMember.get(member)[cursors.addTo(member, 1)] = group.getLongKey();
+                }
+            }
+            return groupsByMember;
+        }
+        
+        void add(Display display, int ordinal) {
+            LongSet keys = new LongOpenHashSet();
+            Long2ObjectMap<long[]> groups = new Long2ObjectOpenHashMap<>();
+            collectKeys(display, keys, groups, this.representatives, this.collisions);
+            for (Long2ObjectMap.Entry<long[]> group : groups.long2ObjectEntrySet()) {
+                if (this.groups.putIfAbsent(group.getLongKey(), group.getValue()) == null) {
+                    for (long member : group.getValue()) {
+                        long[] memberGroups = this.groupsByMember.get(member);
+                        memberGroups = memberGroups == null ? new long[1] : Arrays.copyOf(memberGroups, memberGroups.length + 1);
+                        memberGroups[memberGroups.length - 1] = group.getLongKey();
+                        this.groupsByMember.put(member, memberGroups);
+                    }
+                }
+            }
+            for (LongIterator iterator = keys.iterator(); iterator.hasNext(); ) {
+                long key = iterator.nextLong();
+                Long2ObjectMap<int[]> postings = shard(key);
+                int[] ordinals = postings.getOrDefault(key, EMPTY);
+                int index = Arrays.binarySearch(ordinals, ordinal);
+                if (index >= 0) continue;
+                index = -index - 1;
+                int[] added = new int[ordinals.length + 1];
+                System.arraycopy(ordinals, 0, added, 0, index);
+                added[index] = ordinal;
+                System.arraycopy(ordinals, index, added, index + 1, ordinals.length - index);
+                postings.put(key, added);
+            }
+        }
+        
+        /**
+         * Removes a display from its posting lists. Groups left without displays are dropped along with
+         * their members' references to them, and so are the representatives of keys nothing is indexed
+         * under anymore.
+         */
+        void remove(Display display, int ordinal) {
+            LongSet keys = new LongOpenHashSet();
+            collectKeys(display, keys, new Long2ObjectOpenHashMap<>(), null, null);
+            LongSet released = new LongOpenHashSet();
+            for (LongIterator iterator = keys.iterator(); iterator.hasNext(); ) {
+                long key = iterator.nextLong();
+                Long2ObjectMap<int[]> postings = shard(key);
+                int[] ordinals = postings.get(key);
+                if (ordinals == null) continue;
+                int index = Arrays.binarySearch(ordinals, ordinal);
+                if (index < 0) continue;
+                if (ordinals.length > 1) {
+                    int[] removed = new int[ordinals.length - 1];
+                    System.arraycopy(ordinals, 0, removed, 0, index);
+                    System.arraycopy(ordinals, index + 1, removed, index, ordinals.length - index - 1);
+                    postings.put(key, removed);
+                    continue;
+                }
+                postings.remove(key);
+                long[] members = this.groups.remove(key);
+                if (members != null) {
+                    unlinkGroup(key, members);
+                    released.addAll(LongArrayList.wrap(members));
+                } else {
+                    released.add(key);
+                }
+            }
+            for (LongIterator iterator = released.iterator(); iterator.hasNext(); ) {
+                long key = iterator.nextLong();
+                if (!shard(key).containsKey(key) && !this.groupsByMember.containsKey(key)) {
+                    this.representatives.remove(key);
+                    this.collisions.remove(key);
+                }
+            }
+        }
+        
+        private void unlinkGroup(long group, long[] members) {
+            for (long member : members) {
+                long[] memberGroups = this.groupsByMember.get(member);
+                if (memberGroups == null) continue;
+                for (int i = 0; i < memberGroups.length; i++) {
+                    if (memberGroups[i] == group) {
+                        if (memberGroups.length == 1) {
+                            this.groupsByMember.remove(member);
+                        } else {
+                            long[] removed = new long[memberGroups.length - 1];
+                            System.arraycopy(memberGroups, 0, removed, 0, i);
+                            System.arraycopy(memberGroups, i + 1, removed, i, memberGroups.length - i - 1);
+                            this.groupsByMember.put(member, removed);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Collects the keys a display is indexed under, recording the members of the groups it is indexed
+         * under in {@code groups}. A group key depends only on the distinct members of the ingredient, so
+         * every ingredient resolved from the same tag shares one posting list. The stacks are recorded as
+         * representatives of their keys when {@code representatives} is not {@code null}.
+         */
+        private void collectKeys(Display display, LongSet keys, Long2ObjectMap<long[]> groups,
+                                 @Nullable Long2ObjectMap<EntryStack<?>> representatives, @Nullable LongSet collisions) {
+            keys.clear();
+            for (EntryIngredient ingredient : this.ingredients.apply(display)) {
+                LongSet members = ingredient.size() >= GROUP_THRESHOLD ? new LongOpenHashSet(ingredient.size()) : keys;
+                for (EntryStack<?> stack : ingredient) {
+                    long hash = EntryStacks.hashFuzzy(stack);
+                    if (representatives != null) {
+                        represent(hash, stack, representatives, collisions);
+                    }
+                    members.add(hash);
+                }
+                if (members == keys) continue;
+                if (members.size() >= GROUP_THRESHOLD) {
+                    long[] sorted = members.toLongArray();
+                    Arrays.sort(sorted);
+                    long group = sorted.length;
+                    for (long member : sorted) {
+                        group = HashMixer.combine(group, member);
+                    }
+                    keys.add(group);
+                    groups.putIfAbsent(group, sorted);
+                } else {
+                    keys.addAll(members);
+                }
+            }
+        }
+        
+        private static void represent(long key, EntryStack<?> stack, Long2ObjectMap<EntryStack<?>> representatives, LongSet collisions) {
+            EntryStack<?> representative = representatives.putIfAbsent(key, stack);
+            if (representative != null && representative != stack && !collisions.contains(key)
+                && !EntryStacks.equalsFuzzy(representative, stack)) {
+                collisions.add(key);
+            }
+        }
+        
+        private record KeyChunk(Long2ObjectMap<long[]> groups, Long2ObjectMap<EntryStack<?>> representatives,
+                                LongSet collisions) {}
     }
 }
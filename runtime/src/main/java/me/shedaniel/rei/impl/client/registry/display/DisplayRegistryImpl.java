@@ -27,6 +27,7 @@ import com.google.common.base.Stopwatch;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import dev.architectury.event.EventResult;
+import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.plugins.REIClientPlugin;
 import me.shedaniel.rei.api.client.registry.category.CategoryRegistry;
 import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
@@ -39,10 +40,15 @@ import me.shedaniel.rei.api.common.category.CategoryIdentifier;
 import me.shedaniel.rei.api.common.display.Display;
 import me.shedaniel.rei.api.common.plugins.PluginManager;
 import me.shedaniel.rei.api.common.registry.ReloadStage;
+import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
+import me.shedaniel.rei.impl.client.view.ViewsImpl;
 import me.shedaniel.rei.impl.common.InternalLogger;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientImpl;
 import me.shedaniel.rei.impl.common.registry.RecipeManagerContextImpl;
 import net.minecraft.world.item.crafting.Recipe;
 import net.minecraft.world.item.crafting.RecipeHolder;
+import net.minecraft.world.item.crafting.RecipeType;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
@@ -56,8 +62,12 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     private final List<DynamicDisplayGenerator<?>> globalDisplayGenerators = new ArrayList<>();
     private final List<DisplayVisibilityPredicate> visibilityPredicates = new ArrayList<>();
     private final List<DisplayFiller<?>> fillers = new ArrayList<>();
+    private final Map<Class<?>, DisplayFiller<?>[]> fillersByClass = new ConcurrentHashMap<>();
+    private final Map<Class<?>, DisplayFiller<?>[]> fillersByRecipeClass = new ConcurrentHashMap<>();
     private long lastAddWarning = -1;
     private DisplaysHolder displaysHolder = new DisplaysHolderImpl(false);
+    @Nullable
+    private volatile DisplayVisibilityCache visibilityCache = null;
     
     @Override
     public void acceptPlugin(REIClientPlugin plugin) {
@@ -77,6 +87,7 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
                 InternalLogger.getInstance().debug("Detected runtime DisplayRegistry modification, this can be extremely dangerous!", new Throwable());
             }
             lastAddWarning = System.currentTimeMillis();
+            ViewsImpl.invalidateCache();
         }
         
         if (DisplayValidator.validate(display)) {
@@ -116,6 +127,8 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     public void registerVisibilityPredicate(DisplayVisibilityPredicate predicate) {
         visibilityPredicates.add(predicate);
         visibilityPredicates.sort(Comparator.reverseOrder());
+        resetVisibilityCache();
+        ViewsImpl.invalidateCache();
         InternalLogger.getInstance().debug("Added display visibility predicate: %s [%.2f priority]", predicate, predicate.getPriority());
     }
     
@@ -127,6 +140,17 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
     
     public boolean isDisplayVisible(DisplayCategory<?> category, Display display) {
         if (category == null) throw new NullPointerException("Failed to resolve category: " + display.getCategoryIdentifier());
+        DisplayVisibilityCache cache = this.visibilityCache;
+        if (cache == null) return testDisplayVisible(category, display);
+        int ordinal = this.displaysHolder.cache().ordinalOf(display);
+        int state = cache.get(ordinal);
+        if (state != DisplayVisibilityCache.UNKNOWN) return state == DisplayVisibilityCache.VISIBLE;
+        boolean visible = testDisplayVisible(category, display);
+        cache.set(ordinal, visible);
+        return visible;
+    }
+    
+    private boolean testDisplayVisible(DisplayCategory<?> category, Display display) {
         for (DisplayVisibilityPredicate predicate : visibilityPredicates) {
             try {
                 EventResult result = predicate.handleDisplay(category, display);
@@ -141,6 +165,33 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         return true;
     }
     
+    /**
+     * Checks the visibility of displays again if any visibility predicate depends on the trigger.
+     */
+    public void invalidateVisibility(DisplayVisibilityPredicate.InvalidationTrigger trigger) {
+        for (DisplayVisibilityPredicate predicate : visibilityPredicates) {
+            Set<DisplayVisibilityPredicate.InvalidationTrigger> triggers = predicate.getInvalidationTriggers();
+            if (triggers != null && triggers.contains(trigger)) {
+                resetVisibilityCache();
+                ViewsImpl.invalidateCache();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Replaces the visibility cache, which is only kept while every predicate declares when its results change.
+     */
+    private void resetVisibilityCache() {
+        for (DisplayVisibilityPredicate predicate : visibilityPredicates) {
+            if (predicate.getInvalidationTriggers() == null) {
+                this.visibilityCache = null;
+                return;
+            }
+        }
+        this.visibilityCache = new DisplayVisibilityCache(this.displaysHolder.cache().ordinalCount());
+    }
+    
     @Override
     public List<DisplayVisibilityPredicate> getVisibilityPredicates() {
         return Collections.unmodifiableList(visibilityPredicates);
@@ -156,37 +207,64 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         registerDisplaysFiller(o -> typeClass.isInstance(o) && ((Predicate<T>) predicate).test((T) o), o -> ((Function<T, Collection<? extends D>>) filler).apply((T) o));
     }
     
+    @Override
+    public <T extends Recipe<?>, D extends Display> void registerRecipeFiller(Class<T> typeClass, Predicate<RecipeType<? super T>> recipeType, Predicate<? extends RecipeHolder<T>> predicate, Function<? extends RecipeHolder<T>, D> filler) {
+        addFiller(DisplayFiller.of(RecipeHolder.class, typeClass, (o, s) -> o instanceof RecipeHolder<?> recipe && testRecipe(typeClass, recipeType, predicate, recipe), (Function<Object, D>) filler));
+        InternalLogger.getInstance().debug("Added display filter: %s for %s", filler, typeClass.getName());
+    }
+    
+    @Override
+    public <T extends Recipe<?>, D extends Display> void registerRecipesFiller(Class<T> typeClass, Predicate<RecipeType<? super T>> recipeType, Predicate<? extends RecipeHolder<T>> predicate, Function<? extends RecipeHolder<T>, Collection<? extends D>> filler) {
+        addFiller(new DisplayFiller<>(RecipeHolder.class, typeClass, (o, s) -> o instanceof RecipeHolder<?> recipe && testRecipe(typeClass, recipeType, predicate, recipe), (Function<Object, Collection<? extends D>>) filler));
+        InternalLogger.getInstance().debug("Added display filter: %s for %s", filler, typeClass.getName());
+    }
+    
+    private static <T extends Recipe<?>> boolean testRecipe(Class<T> typeClass, Predicate<RecipeType<? super T>> recipeType, Predicate<? extends RecipeHolder<T>> predicate, RecipeHolder<?> recipe) {
+        return typeClass.isInstance(recipe.value())
+                && recipeType.test((RecipeType<? super T>) recipe.value().getType())
+                && ((Predicate<RecipeHolder<T>>) predicate).test((RecipeHolder<T>) recipe);
+    }
+    
     @Override
     public <T, D extends Display> void registerFiller(Class<T> typeClass, BiPredicate<? extends T, DisplayAdditionReasons> predicate, Function<? extends T, D> filler) {
-        fillers.add(DisplayFiller.of((o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, D>) filler));
+        addFiller(DisplayFiller.of(typeClass, null, (o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, D>) filler));
         InternalLogger.getInstance().debug("Added display filter: %s for %s", filler, typeClass.getName());
     }
     
     @Override
     public <T, D extends Display> void registerDisplaysFiller(Class<T> typeClass, BiPredicate<? extends T, DisplayAdditionReasons> predicate, Function<? extends T, @Nullable Collection<? extends D>> filler) {
-        fillers.add(new DisplayFiller<>((o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, Collection<? extends D>>) filler));
+        addFiller(new DisplayFiller<>(typeClass, null, (o, s) -> typeClass.isInstance(o) && ((BiPredicate<Object, DisplayAdditionReasons>) predicate).test(o, s), (Function<Object, Collection<? extends D>>) filler));
         InternalLogger.getInstance().debug("Added display filter: %s for %s", filler, typeClass.getName());
     }
     
     @Override
     public <D extends Display> void registerFiller(Predicate<?> predicate, Function<?, D> filler) {
-        fillers.add(DisplayFiller.of((o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, D>) filler));
+        addFiller(DisplayFiller.of(Object.class, null, (o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, D>) filler));
         InternalLogger.getInstance().debug("Added display filter: %s", filler);
     }
     
     @Override
     public <D extends Display> void registerDisplaysFiller(Predicate<?> predicate, Function<?, @Nullable Collection<? extends D>> filler) {
-        fillers.add(new DisplayFiller<>((o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, Collection<? extends D>>) filler));
+        addFiller(new DisplayFiller<>(Object.class, null, (o, s) -> ((Predicate<Object>) predicate).test(o), (Function<Object, Collection<? extends D>>) filler));
         InternalLogger.getInstance().debug("Added display filter: %s", filler);
     }
     
     @Override
     public void startReload() {
         super.startReload();
+        if (((ConfigObjectImpl) ConfigObject.getInstance()).isInterningDisplayIngredients()) {
+            EntryIngredientImpl.startInterning();
+        } else {
+            EntryIngredientImpl.stopInterning();
+        }
         this.displaysHolder = new DisplaysHolderImpl(true);
+        ViewsImpl.invalidateCache();
         this.displayGenerators.clear();
         this.visibilityPredicates.clear();
+        this.visibilityCache = null;
         this.fillers.clear();
+        this.fillersByClass.clear();
+        this.fillersByRecipeClass.clear();
     }
     
     @Override
@@ -202,6 +280,9 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         
         removeFailedDisplays();
         this.displaysHolder.endReload();
+        resetVisibilityCache();
+        EntryIngredientImpl.stopInterning();
+        ViewsImpl.invalidateCache();
         InternalLogger.getInstance().debug("%d displays registration have completed", displaySize());
     }
     
@@ -210,12 +291,32 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         int lastSize = displaySize();
         if (!fillers.isEmpty()) {
             List<RecipeHolder<?>> allSortedRecipes = getAllSortedRecipes();
+            Collection<Display>[] filled = new Collection[allSortedRecipes.size()];
+            ComputeExecutor.RangeTask task = (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    RecipeHolder<?> recipe = allSortedRecipes.get(i);
+                    try {
+                        filled[i] = tryFillDisplay(recipe, DisplayAdditionReason.RECIPE_MANAGER);
+                    } catch (Throwable e) {
+                        InternalLogger.getInstance().error("Failed to fill display for recipe: %s [%s]", recipe.value(), recipe.id(), e);
+                    }
+                }
+            };
+            if (((ConfigObjectImpl) ConfigObject.getInstance()).isFillingDisplaysInParallel()) {
+                ComputeExecutor.forRange(filled.length, task);
+            } else {
+                task.run(0, filled.length);
+            }
+            // Add the filled displays on this thread in reverse recipe order, so the display order does not depend on scheduling
             for (int i = allSortedRecipes.size() - 1; i >= 0; i--) {
+                if (filled[i] == null) continue;
                 RecipeHolder<?> recipe = allSortedRecipes.get(i);
-                try {
-                    addWithReason(recipe, DisplayAdditionReason.RECIPE_MANAGER);
-                } catch (Throwable e) {
-                    InternalLogger.getInstance().error("Failed to fill display for recipe: %s [%s]", recipe.value(), recipe.id(), e);
+                for (Display display : filled[i]) {
+                    try {
+                        add(display, recipe);
+                    } catch (Throwable e) {
+                        InternalLogger.getInstance().error("Failed to fill display for recipe: %s [%s]", recipe.value(), recipe.id(), e);
+                    }
                 }
             }
         }
@@ -264,7 +365,7 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         if (value instanceof Display) return Collections.singleton((Display) value);
         List<Display> out = null;
         DisplayAdditionReasons reasons = reason.length == 0 ? DisplayAdditionReasons.Impl.EMPTY : new DisplayAdditionReasons.Impl(reason);
-        for (DisplayFiller<?> filler : fillers) {
+        for (DisplayFiller<?> filler : getFillers(value)) {
             Collection<Display> displays = tryFillDisplayGenerics(filler, value, reasons);
             if (displays != null && !displays.isEmpty()) {
                 if (out == null) out = new ArrayList<>();
@@ -279,6 +380,31 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         return Collections.emptyList();
     }
     
+    private void addFiller(DisplayFiller<?> filler) {
+        this.fillers.add(filler);
+        this.fillersByClass.clear();
+        this.fillersByRecipeClass.clear();
+    }
+    
+    /**
+     * Returns the fillers that may accept the value in registration order, indexed by the class of the value,
+     * or by the class of the recipe for recipe holders, so the predicates of unrelated fillers are not tested.
+     */
+    private DisplayFiller<?>[] getFillers(@Nullable Object value) {
+        if (value == null) {
+            return this.fillers.toArray(new DisplayFiller[0]);
+        } else if (value instanceof RecipeHolder<?> recipe) {
+            return this.fillersByRecipeClass.computeIfAbsent(recipe.value().getClass(), recipeClass ->
+                    this.fillers.stream()
+                            .filter(filler -> filler.typeClass().isInstance(value) && (filler.recipeClass() == null || filler.recipeClass().isAssignableFrom(recipeClass)))
+                            .toArray(DisplayFiller[]::new));
+        }
+        return this.fillersByClass.computeIfAbsent(value.getClass(), valueClass ->
+                this.fillers.stream()
+                        .filter(filler -> filler.typeClass().isAssignableFrom(valueClass) && filler.recipeClass() == null)
+                        .toArray(DisplayFiller[]::new));
+    }
+    
     private <D extends Display> Collection<D> tryFillDisplayGenerics(DisplayFiller<? extends D> filler, Object value, DisplayAdditionReasons reasons) {
         try {
             if (filler.predicate.test(value, reasons)) {
@@ -297,13 +423,19 @@ public class DisplayRegistryImpl extends RecipeManagerContextImpl<REIClientPlugi
         return this.displaysHolder.getDisplayOrigin(display);
     }
     
+    /**
+     * @param typeClass   the class the filled values must be instances of
+     * @param recipeClass the class the recipe must be an instance of, for recipe fillers
+     */
     private record DisplayFiller<D extends Display>(
+            Class<?> typeClass,
+            @Nullable Class<?> recipeClass,
             BiPredicate<Object, DisplayAdditionReasons> predicate,
             
             Function<Object, Collection<? extends D>> mappingFunction
     ) {
-        public static <D extends Display> DisplayFiller<D> of(BiPredicate<Object, DisplayAdditionReasons> predicate, Function<Object, D> mappingFunction) {
-            return new DisplayFiller<>(predicate, o -> Collections.singleton(mappingFunction.apply(o)));
+        public static <D extends Display> DisplayFiller<D> of(Class<?> typeClass, @Nullable Class<?> recipeClass, BiPredicate<Object, DisplayAdditionReasons> predicate, Function<Object, D> mappingFunction) {
+            return new DisplayFiller<>(typeClass, recipeClass, predicate, o -> Collections.singleton(mappingFunction.apply(o)));
         }
     }
 }
@@ -0,0 +1,54 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.registry.display;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The visibility of displays packed in two bits per display ordinal, one marking whether the visibility
+ * is known and one holding it. A cache is never cleared, it is replaced by a new one when invalidated,
+ * so results computed against an older cache cannot leak into a newer one.
+ */
+class DisplayVisibilityCache {
+    static final int UNKNOWN = 0;
+    static final int HIDDEN = 1;
+    static final int VISIBLE = 3;
+    private final AtomicLongArray bits;
+    private final int capacity;
+    
+    DisplayVisibilityCache(int capacity) {
+        this.capacity = capacity;
+        this.bits = new AtomicLongArray((capacity + 31) >>> 5);
+    }
+    
+    int get(int ordinal) {
+        if (ordinal < 0 || ordinal >= this.capacity) return UNKNOWN;
+        return (int) (this.bits.get(ordinal >>> 5) >>> ((ordinal & 31) << 1)) & 3;
+    }
+    
+    void set(int ordinal, boolean visible) {
+        if (ordinal < 0 || ordinal >= this.capacity) return;
+        long state = (long) (visible ? VISIBLE : HIDDEN) << ((ordinal & 31) << 1);
+        this.bits.getAndAccumulate(ordinal >>> 5, state, (current, value) -> current | value);
+    }
+}
@@ -30,10 +30,17 @@ import org.jetbrains.annotations.Nullable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
 
 public interface DisplaysHolder {
     DisplayCache cache();
     
+    /**
+     * Returns the lock guarding the displays and their cache. Displays are added and removed under the
+     * write lock, threads other than the client thread must hold the read lock while reading them.
+     */
+    ReadWriteLock lock();
+    
     void add(Display display, @Nullable Object origin);
     
     boolean remove(Display display);
@@ -36,6 +36,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DisplaysHolderImpl implements DisplaysHolder {
     private final DisplayCache cache;
@@ -51,9 +53,10 @@ public class DisplaysHolderImpl implements DisplaysHolder {
     }, key -> CategoryRegistry.getInstance().tryGet(key).isPresent());
     private final WeakHashMap<Display, Object> originsMap = new WeakHashMap<>();
     private final MutableInt displayCount = new MutableInt(0);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     
     public DisplaysHolderImpl(boolean init) {
-        this.cache = new DisplayCacheImpl(init);
+        this.cache = new DisplayCacheImpl(init, this.lock);
     }
     
     @Override
@@ -61,34 +64,49 @@ public class DisplaysHolderImpl implements DisplaysHolder {
         return this.cache;
     }
     
+    @Override
+    public ReadWriteLock lock() {
+        return this.lock;
+    }
+    
     @Override
     public void add(Display display, @Nullable Object origin) {
-        this.displays.computeIfAbsent(display.getCategoryIdentifier(), location -> new DisplaysList())
-                .add(display);
-        Optional<ResourceLocation> location = display.getDisplayLocation();
-        if (location.isPresent()) {
-            this.displaysByKey.put(DisplayKey.create(display.getCategoryIdentifier(), location.get()), display);
-        }
-        this.displayCount.increment();
-        if (origin != null) {
-            synchronized (this.originsMap) {
-                this.originsMap.put(display, origin);
+        this.lock.writeLock().lock();
+        try {
+            this.displays.computeIfAbsent(display.getCategoryIdentifier(), location -> new DisplaysList())
+                    .add(display);
+            Optional<ResourceLocation> location = display.getDisplayLocation();
+            if (location.isPresent()) {
+                this.displaysByKey.put(DisplayKey.create(display.getCategoryIdentifier(), location.get()), display);
             }
+            this.displayCount.increment();
+            if (origin != null) {
+                synchronized (this.originsMap) {
+                    this.originsMap.put(display, origin);
+                }
+            }
+            this.cache.add(display);
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        this.cache.add(display);
     }
     
     @Override
     public boolean remove(Display display) {
-        if (this.displays.get(display.getCategoryIdentifier()).remove(display)) {
-            removeFallout(display);
-            if (this.displays.get(display.getCategoryIdentifier()).isEmpty()) {
-                this.displays.remove(display.getCategoryIdentifier());
+        this.lock.writeLock().lock();
+        try {
+            if (this.displays.get(display.getCategoryIdentifier()).remove(display)) {
+                removeFallout(display);
+                if (this.displays.get(display.getCategoryIdentifier()).isEmpty()) {
+                    this.displays.remove(display.getCategoryIdentifier());
+                }
+                return true;
             }
-            return true;
+            
+            return false;
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        
-        return false;
     }
     
     private void removeFallout(Display display) {
@@ -115,7 +133,12 @@ public class DisplaysHolderImpl implements DisplaysHolder {
     
     @Override
     public void endReload() {
-        this.cache.endReload();
+        this.lock.writeLock().lock();
+        try {
+            this.cache.endReload();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
     }
     
     @Override
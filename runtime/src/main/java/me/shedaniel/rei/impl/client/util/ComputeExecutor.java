@@ -0,0 +1,112 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.util;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
+
+/**
+ * A shared, bounded executor for CPU bound work that REI splits into chunks,
+ * such as filtering rules, instead of every feature owning its own pool.
+ */
+@ApiStatus.Internal
+public final class ComputeExecutor {
+    private static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final ExecutorService EXECUTOR_SERVICE = new ThreadCreator("REI-Compute").asService(PARALLELISM);
+    
+    private ComputeExecutor() {
+    }
+    
+    public static ExecutorService get() {
+        return EXECUTOR_SERVICE;
+    }
+    
+    public static int parallelism() {
+        return PARALLELISM;
+    }
+    
+    /**
+     * Returns the size of each chunk when splitting {@code size} elements over the executor,
+     * aiming for a few chunks per thread while keeping chunks large enough to amortize scheduling.
+     *
+     * @param size the total number of elements
+     * @return the chunk size
+     */
+    public static int chunkSize(int size) {
+        return Math.max(MIN_CHUNK_SIZE, -Math.floorDiv(-size, PARALLELISM * CHUNKS_PER_THREAD));
+    }
+    
+    /**
+     * Runs the task over {@code [0, size)} split into chunks on the executor, and waits for all chunks
+     * to complete. Small ranges are run on the calling thread.
+     *
+     * @param size the total number of elements
+     * @param task the task to run for each chunk
+     */
+    public static void forRange(int size, RangeTask task) {
+        int chunkSize = chunkSize(size);
+        if (size <= chunkSize) {
+            task.run(0, size);
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start, to = Math.min(size, start + chunkSize);
+            futures.add(CompletableFuture.runAsync(() -> task.run(from, to), EXECUTOR_SERVICE));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    
+    /**
+     * Runs the task once for every index in {@code [0, count)} as separate tasks on the executor,
+     * and waits for all of them to complete.
+     *
+     * @param count the number of tasks
+     * @param task  the task to run for each index
+     */
+    public static void forEach(int count, IntConsumer task) {
+        if (count <= 1) {
+            if (count == 1) task.accept(0);
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures[i] = CompletableFuture.runAsync(() -> task.accept(index), EXECUTOR_SERVICE);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+    
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.view;
+
+import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
+import me.shedaniel.rei.impl.display.DisplaySpec;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * A recipe view that is built off the client thread, handed out category by category as soon as each category is final.
+ * <p>
+ * Displays are collected on the {@link ComputeExecutor}, while merging and sorting them, which evaluates auto crafting
+ * against the open menu, happens on the client thread when the build is {@linkplain #poll(Consumer) polled}.
+ */
+@ApiStatus.Internal
+public class ViewBuild {
+    private final Map<DisplayCategory<?>, List<DisplaySpec>> specs;
+    private final Map<DisplayCategory<?>, Set<Display>> displays = new LinkedHashMap<>();
+    private final Queue<Map.Entry<DisplayCategory<?>, Set<Display>>> pending = new ConcurrentLinkedQueue<>();
+    private final CompletableFuture<Void> firstReady = new CompletableFuture<>();
+    @Nullable
+    private final ViewCache.Key cacheKey;
+    private final int inventoryRevision;
+    private final boolean merging;
+    private CompletableFuture<?> future = CompletableFuture.completedFuture(null);
+    private volatile boolean cancelled;
+    private volatile boolean complete = true;
+    private boolean cached;
+    
+    ViewBuild(@Nullable ViewCache.Key cacheKey, int inventoryRevision, boolean merging) {
+        this(ViewsImpl.createSortedMap(), cacheKey, inventoryRevision, merging);
+    }
+    
+    private ViewBuild(Map<DisplayCategory<?>, List<DisplaySpec>> specs, @Nullable ViewCache.Key cacheKey, int inventoryRevision, boolean merging) {
+        this.specs = specs;
+        this.cacheKey = cacheKey;
+        this.inventoryRevision = inventoryRevision;
+        this.merging = merging;
+    }
+    
+    static ViewBuild completed(Map<DisplayCategory<?>, List<DisplaySpec>> specs) {
+        ViewBuild build = new ViewBuild(specs, null, 0, false);
+        build.firstReady.complete(null);
+        return build;
+    }
+    
+    void start(CompletableFuture<?> future) {
+        this.future = future;
+        future.whenComplete((unused, throwable) -> this.firstReady.complete(null));
+    }
+    
+    void offer(DisplayCategory<?> category, Set<Display> displays) {
+        this.pending.add(Map.entry(category, displays));
+        this.firstReady.complete(null);
+    }
+    
+    /**
+     * Marks the build as missing the displays of a skipped or timed out live display generator, so it is not cached.
+     */
+    void markIncomplete() {
+        this.complete = false;
+    }
+    
+    /**
+     * Stops collecting displays, the categories that are already final can still be polled.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+    
+    /**
+     * Returns whether every category has been collected and polled.
+     */
+    public boolean isDone() {
+        return this.future.isDone() && this.pending.isEmpty();
+    }
+    
+    /**
+     * Returns the categories polled so far, in the configured category order. The returned map is updated by {@link #poll(Consumer)}.
+     */
+    public Map<DisplayCategory<?>, List<DisplaySpec>> getSpecs() {
+        return this.specs;
+    }
+    
+    /**
+     * Blocks until the first category is final or the build is done, then polls the categories ready so far.
+     *
+     * @return the categories polled so far, which is empty if no displays were found
+     */
+    public Map<DisplayCategory<?>, List<DisplaySpec>> awaitFirst() {
+        this.firstReady.join();
+        poll(category -> {});
+        return this.specs;
+    }
+    
+    /**
+     * Merges and sorts the categories that became final since the last poll into {@link #getSpecs()}.
+     * This must be called on the client thread.
+     *
+     * @param listener called for every category added
+     * @return whether any category was added
+     */
+    public boolean poll(Consumer<DisplayCategory<?>> listener) {
+        boolean added = false;
+        Map.Entry<DisplayCategory<?>, Set<Display>> entry;
+        while ((entry = this.pending.poll()) != null) {
+            this.displays.put(entry.getKey(), entry.getValue());
+            this.specs.putAll(ViewsImpl.buildSpecs(Collections.singletonMap(entry.getKey(), entry.getValue()), this.merging));
+            listener.accept(entry.getKey());
+            added = true;
+        }
+        if (!this.cached && this.complete && this.cacheKey != null && isDone() && !this.future.isCompletedExceptionally()) {
+            this.cached = true;
+            ViewsImpl.cache(this.cacheKey, this.inventoryRevision, this.displays, this.specs);
+        }
+        return added;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.client.view;
+
+import me.shedaniel.rei.api.client.config.ConfigObject;
+import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
+import me.shedaniel.rei.api.client.view.ViewSearchBuilder;
+import me.shedaniel.rei.api.common.category.CategoryIdentifier;
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.gui.craftable.CraftableFilter;
+import me.shedaniel.rei.impl.display.DisplaySpec;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A bounded, least recently used cache of built recipe views, keyed by the contents of the {@link ViewSearchBuilder}.
+ * <p>
+ * The displays found for a search are kept separately from their merged and sorted form, since the ordering
+ * of merged displays depends on the inventory through auto crafting, and only that part is rebuilt when the
+ * inventory changes.
+ */
+class ViewCache {
+    private static final int MAX_SIZE = 32;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    
+    @Nullable
+    public synchronized Map<DisplayCategory<?>, List<DisplaySpec>> get(Key key, Function<Map<DisplayCategory<?>, Set<Display>>, Map<DisplayCategory<?>, List<DisplaySpec>>> specsBuilder) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) return null;
+        if (key.merging && entry.inventoryRevision != CraftableFilter.INSTANCE.getRevision()) {
+            entry.specs = specsBuilder.apply(entry.displays);
+            entry.inventoryRevision = CraftableFilter.INSTANCE.getRevision();
+        }
+        return copy(entry.specs);
+    }
+    
+    public synchronized Map<DisplayCategory<?>, List<DisplaySpec>> put(Key key, int inventoryRevision, Map<DisplayCategory<?>, Set<Display>> displays, Map<DisplayCategory<?>, List<DisplaySpec>> specs) {
+        this.entries.put(key, new Entry(displays, specs, inventoryRevision));
+        return copy(specs);
+    }
+    
+    public synchronized void invalidate() {
+        this.entries.clear();
+    }
+    
+    private static Map<DisplayCategory<?>, List<DisplaySpec>> copy(Map<DisplayCategory<?>, List<DisplaySpec>> specs) {
+        Map<DisplayCategory<?>, List<DisplaySpec>> copy = new LinkedHashMap<>(specs.size());
+        for (Map.Entry<DisplayCategory<?>, List<DisplaySpec>> entry : specs.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
+    }
+    
+    private static class Entry {
+        private final Map<DisplayCategory<?>, Set<Display>> displays;
+        private Map<DisplayCategory<?>, List<DisplaySpec>> specs;
+        private int inventoryRevision;
+        
+        private Entry(Map<DisplayCategory<?>, Set<Display>> displays, Map<DisplayCategory<?>, List<DisplaySpec>> specs, int inventoryRevision) {
+            this.displays = displays;
+            this.specs = specs;
+            this.inventoryRevision = inventoryRevision;
+        }
+    }
+    
+    public record Key(long[] recipesFor, long[] usagesFor, Set<CategoryIdentifier<?>> categories,
+                      Set<CategoryIdentifier<?>> filteringCategories, boolean processingVisibilityHandlers,
+                      boolean merging) {
+        public static Key of(ViewSearchBuilder builder) {
+            return new Key(hashes(builder.getRecipesFor()), hashes(builder.getUsagesFor()),
+                    Set.copyOf(builder.getCategories()), Set.copyOf(builder.getFilteringCategories()),
+                    builder.isProcessingVisibilityHandlers(),
+                    builder.isMergingDisplays() && ConfigObject.getInstance().doMergeDisplayUnderOne());
+        }
+        
+        private static long[] hashes(List<EntryStack<?>> stacks) {
+            long[] hashes = new long[stacks.size()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = EntryStacks.hashExact(stacks.get(i));
+            }
+            return hashes;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key key
+                                && processingVisibilityHandlers == key.processingVisibilityHandlers
+                                && merging == key.merging
+                                && Arrays.equals(recipesFor, key.recipesFor)
+                                && Arrays.equals(usagesFor, key.usagesFor)
+                                && categories.equals(key.categories)
+                                && filteringCategories.equals(key.filteringCategories);
+        }
+        
+        @Override
+        public int hashCode() {
+            int result = Arrays.hashCode(recipesFor);
+            result = 31 * result + Arrays.hashCode(usagesFor);
+            result = 31 * result + categories.hashCode();
+            result = 31 * result + filteringCategories.hashCode();
+            result = 31 * result + Boolean.hashCode(processingVisibilityHandlers);
+            result = 31 * result + Boolean.hashCode(merging);
+            return result;
+        }
+    }
+}
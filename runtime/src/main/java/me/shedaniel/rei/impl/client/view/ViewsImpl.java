@@ -27,9 +27,14 @@ import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import me.shedaniel.rei.RoughlyEnoughItemsCore;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.registry.category.CategoryRegistry;
 import me.shedaniel.rei.api.client.registry.display.DisplayCategory;
@@ -44,15 +49,22 @@ import me.shedaniel.rei.api.common.entry.EntryIngredient;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.plugins.PluginManager;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
-import me.shedaniel.rei.api.common.util.EntryIngredients;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
+import me.shedaniel.rei.impl.client.gui.craftable.CraftableFilter;
 import me.shedaniel.rei.impl.client.gui.craftable.CraftableFilterCalculator;
 import me.shedaniel.rei.impl.client.gui.widget.AutoCraftingEvaluator;
+import me.shedaniel.rei.impl.client.registry.category.CategoryRegistryImpl;
+import me.shedaniel.rei.impl.client.registry.display.DisplayCache;
 import me.shedaniel.rei.impl.client.registry.display.DisplayRegistryImpl;
 import me.shedaniel.rei.impl.client.registry.display.DisplaysHolder;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.client.util.CrashReportUtils;
+import me.shedaniel.rei.impl.client.util.ThreadCreator;
 import me.shedaniel.rei.impl.common.InternalLogger;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientImpl;
 import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
+import me.shedaniel.rei.impl.display.ContentDisplayMerger;
 import me.shedaniel.rei.impl.display.DisplaySpec;
 import net.minecraft.CrashReport;
 import net.minecraft.ReportedException;
@@ -61,6 +73,10 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -68,6 +84,10 @@ import java.util.function.Predicate;
 @ApiStatus.Internal
 public class ViewsImpl implements Views {
     private static final ThreadLocal<ViewSearchBuilder> BUILDER = new ThreadLocal<>();
+    private static final ViewCache CACHE = new ViewCache();
+    private static final String GENERATORS_STAGE = "Display Generators";
+    private static final ExecutorService GENERATOR_EXECUTOR = new ThreadCreator("REI-Display-Generators").asService(Math.max(2, ComputeExecutor.parallelism()));
+    private static final Map<DynamicDisplayGenerator<?>, GeneratorPenalty> GENERATOR_PENALTIES = Collections.synchronizedMap(new Reference2ObjectOpenHashMap<>());
     
     @Nullable
     @Override
@@ -85,6 +105,13 @@ public class ViewsImpl implements Views {
         }
     }
     
+    /**
+     * Invalidates the built recipe views, which should be called whenever the displays or their visibility change.
+     */
+    public static void invalidateCache() {
+        CACHE.invalidate();
+    }
+    
     private static Map<DisplayCategory<?>, List<DisplaySpec>> _buildMapFor(ViewSearchBuilder builder) {
         if (PluginManager.areAnyReloading()) {
             InternalLogger.getInstance().info("Cancelled Views buildMap since plugins have not finished reloading.");
@@ -92,8 +119,81 @@ public class ViewsImpl implements Views {
         }
         
         Stopwatch stopwatch = Stopwatch.createStarted();
-        boolean processingVisibilityHandlers = builder.isProcessingVisibilityHandlers();
+        ViewCache.Key cacheKey = ((ConfigObjectImpl) ConfigObject.getInstance()).isCachingRecipeViews() ? ViewCache.Key.of(builder) : null;
+        if (cacheKey != null) {
+            Map<DisplayCategory<?>, List<DisplaySpec>> cached = CACHE.get(cacheKey, displays -> buildSpecs(displays, cacheKey.merging()));
+            if (cached != null) {
+                logBuildTime(String.format("Built Recipe View in %s from cache.", stopwatch.stop()));
+                return cached;
+            }
+        }
+        int inventoryRevision = CraftableFilter.INSTANCE.getRevision();
         Set<CategoryIdentifier<?>> categories = new HashSet<>(builder.getCategories());
+        Map<DisplayCategory<?>, Set<Display>> result = Maps.newHashMap();
+        CollectedDisplays collected = collectDisplays(builder, categories, () -> false, result::put);
+        
+        Map<DisplayCategory<?>, List<DisplaySpec>> sorted = buildSpecs(result, builder.isMergingDisplays() && ConfigObject.getInstance().doMergeDisplayUnderOne());
+        if (cacheKey != null && collected.complete()) {
+            sorted = CACHE.put(cacheKey, inventoryRevision, result, sorted);
+        }
+        
+        logBuildTime(String.format("Built Recipe View in %s for %d categories, %d recipes for, %d usages for and %d live recipe generators.",
+                stopwatch.stop(), categories.size(), builder.getRecipesFor().size(), builder.getUsagesFor().size(), collected.generatorsCount()));
+        return sorted;
+    }
+    
+    /**
+     * Starts building the recipe view off the client thread, see {@link ViewBuild}. Views that are cached,
+     * or requested while plugins are reloading, are returned as completed builds.
+     */
+    public static ViewBuild buildAsync(ViewSearchBuilder builder) {
+        if (PluginManager.areAnyReloading() || !((ConfigObjectImpl) ConfigObject.getInstance()).isBuildingRecipeViewsAsync()) {
+            return ViewBuild.completed(buildMapFor(builder));
+        }
+        
+        ViewCache.Key cacheKey = ((ConfigObjectImpl) ConfigObject.getInstance()).isCachingRecipeViews() ? ViewCache.Key.of(builder) : null;
+        if (cacheKey != null) {
+            Map<DisplayCategory<?>, List<DisplaySpec>> cached = CACHE.get(cacheKey, displays -> buildSpecs(displays, cacheKey.merging()));
+            if (cached != null) {
+                return ViewBuild.completed(cached);
+            }
+        }
+        ViewBuild build = new ViewBuild(cacheKey, CraftableFilter.INSTANCE.getRevision(), builder.isMergingDisplays() && ConfigObject.getInstance().doMergeDisplayUnderOne());
+        Set<CategoryIdentifier<?>> categories = new HashSet<>(builder.getCategories());
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        build.start(CompletableFuture.runAsync(() -> {
+            BUILDER.set(builder);
+            
+            try {
+                CollectedDisplays collected = collectDisplays(builder, categories, () -> build.isCancelled() || PluginManager.areAnyReloading(), build::offer);
+                if (!collected.complete()) {
+                    build.markIncomplete();
+                }
+                logBuildTime(String.format("Collected Recipe View in %s for %d categories, %d recipes for, %d usages for and %d live recipe generators.",
+                        stopwatch.stop(), categories.size(), builder.getRecipesFor().size(), builder.getUsagesFor().size(), collected.generatorsCount()));
+            } finally {
+                BUILDER.remove();
+            }
+        }, ComputeExecutor.get()).whenComplete((unused, throwable) -> {
+            if (throwable != null && !(throwable.getCause() instanceof CancellationException)) {
+                InternalLogger.getInstance().error("Failed to build recipe view", throwable);
+            }
+        }));
+        return build;
+    }
+    
+    /**
+     * Collects the displays of a recipe view, handing every category to the sink once its displays are final.
+     * Categories are handed out at most once each, in no particular order.
+     *
+     * @param categories the categories to show all displays of, which the categories of matching workstations are added to
+     * @param cancelled  whether the collection should stop, checked between categories and generators
+     * @return the number of live display generators that were run, and whether all of them contributed their displays
+     * @throws CancellationException if the collection was cancelled
+     */
+    private static CollectedDisplays collectDisplays(ViewSearchBuilder builder, Set<CategoryIdentifier<?>> categories, BooleanSupplier cancelled, BiConsumer<DisplayCategory<?>, Set<Display>> sink) {
+        boolean processingVisibilityHandlers = builder.isProcessingVisibilityHandlers();
+        Set<CategoryIdentifier<?>> searchedCategories = Set.copyOf(categories);
         Set<CategoryIdentifier<?>> filteringCategories = builder.getFilteringCategories();
         List<EntryStack<?>> recipesForStacks = builder.getRecipesFor();
         List<EntryStack<?>> usagesForStacks = builder.getUsagesFor();
@@ -106,130 +206,257 @@ public class ViewsImpl implements Views {
         List<EntryStack<?>> usagesForStacksWildcard = CollectionUtils.flatMap(usagesForStacks, wildcardFunction);
         DisplayRegistry displayRegistry = DisplayRegistry.getInstance();
         DisplaysHolder displaysHolder = ((DisplayRegistryImpl) displayRegistry).displaysHolder();
-        
-        Map<DisplayCategory<?>, Set<Display>> result = Maps.newHashMap();
-        forCategories(processingVisibilityHandlers, filteringCategories, displayRegistry, result, (configuration, categoryId, displays, set) -> {
-            if (categories.contains(categoryId)) { // If the category is in the search, add all displays
-                for (Display display : displays) {
-                    if (!processingVisibilityHandlers || ((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) {
-                        set.add(display);
-                    }
-                }
-                if (!set.isEmpty()) {
-                    getOrPutEmptyLinkedSet(result, configuration.getCategory()).addAll(set);
-                }
-                return;
-            }
-            for (Display display : displays) {
-                if (processingVisibilityHandlers && !((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) continue;
-                if (!recipesForStacks.isEmpty()) {
-                    if (isRecipesFor(displaysHolder, recipesForStacks, display)) {
-                        set.add(display);
-                        continue;
-                    }
-                }
-                if (!usagesForStacks.isEmpty()) {
-                    if (isUsagesFor(displaysHolder, usagesForStacks, display)) {
-                        set.add(display);
-                    }
-                }
-            }
-        });
-        
-        // Generate live displays per category
+        // The displays are read under the read lock of the holder, which is released while waiting for generators
+        Lock displaysLock = displaysHolder.lock().readLock();
+        @Nullable Map<CategoryIdentifier<?>, List<Display>> candidates;
+        displaysLock.lock();
+        try {
+            candidates = collectCandidates(displaysHolder, recipesForStacks, usagesForStacks);
+        } finally {
+            displaysLock.unlock();
+        }
         int generatorsCount = 0;
         
+        // Start every live display generator at once, so a slow generator does not hold up the others
+        long budget = TimeUnit.MILLISECONDS.toNanos(((ConfigObjectImpl) ConfigObject.getInstance()).getDisplayGeneratorBudget());
+        List<GeneratorRun> globalRuns = new ArrayList<>();
+        for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) displayRegistry.getGlobalDisplayGenerators()) {
+            generatorsCount++;
+            globalRuns.add(new GeneratorRun(displayRegistry, generator, builder, budget));
+        }
+        Map<CategoryIdentifier<?>, List<GeneratorRun>> categoryRuns = new HashMap<>();
         for (Map.Entry<CategoryIdentifier<?>, List<DynamicDisplayGenerator<?>>> entry : displayRegistry.getCategoryDisplayGenerators().entrySet()) {
             CategoryIdentifier<?> categoryId = entry.getKey();
             DisplayCategory<?> category = CategoryRegistry.getInstance().get(categoryId).getCategory();
             if (processingVisibilityHandlers && CategoryRegistry.getInstance().isCategoryInvisible(category)) continue;
             if (!filteringCategories.isEmpty() && !filteringCategories.contains(categoryId)) continue;
-            Set<Display> set = new LinkedHashSet<>();
-            generatorsCount += entry.getValue().size();
-            
+            List<GeneratorRun> runs = new ArrayList<>(entry.getValue().size());
             for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) entry.getValue()) {
-                generateLiveDisplays(displayRegistry, wrapForError(generator), builder, set::add);
-            }
-            
-            if (!set.isEmpty()) {
-                getOrPutEmptyLinkedSet(result, category).addAll(set);
+                generatorsCount++;
+                runs.add(new GeneratorRun(displayRegistry, generator, builder, budget));
             }
+            categoryRuns.put(categoryId, runs);
         }
         
-        Consumer<Display> displayConsumer = display -> {
-            CategoryIdentifier<?> categoryIdentifier = display.getCategoryIdentifier();
-            if (!filteringCategories.isEmpty() && !filteringCategories.contains(categoryIdentifier)) return;
-            getOrPutEmptyLinkedSet(result, CategoryRegistry.getInstance().get(categoryIdentifier).getCategory()).add(display);
-        };
-        for (DynamicDisplayGenerator<Display> generator : (List<DynamicDisplayGenerator<Display>>) (List<? extends DynamicDisplayGenerator<?>>) displayRegistry.getGlobalDisplayGenerators()) {
-            generatorsCount++;
-            generateLiveDisplays(displayRegistry, wrapForError(generator), builder, displayConsumer);
+        // Global generators may add displays to any category, so they have to finish before any category is final
+        Map<DisplayCategory<?>, Set<Display>> globalDisplays = new HashMap<>();
+        for (GeneratorRun run : globalRuns) {
+            checkCancelled(cancelled);
+            for (Display display : run.join()) {
+                CategoryIdentifier<?> categoryIdentifier = display.getCategoryIdentifier();
+                if (!filteringCategories.isEmpty() && !filteringCategories.contains(categoryIdentifier)) continue;
+                getOrPutEmptyLinkedSet(globalDisplays, CategoryRegistry.getInstance().get(categoryIdentifier).getCategory()).add(display);
+            }
         }
         
-        if (CollectionUtils.allMatch(result.values(), Set::isEmpty) && (!recipesForStacksWildcard.isEmpty() || !usagesForStacksWildcard.isEmpty())) {
-            // Run wildcard search because no displays were found
-            forCategories(processingVisibilityHandlers, filteringCategories, displayRegistry, result, (configuration, categoryId, displays, set) -> {
-                if (categories.contains(categoryId)) return;
-                for (Display display : displays) {
-                    if (processingVisibilityHandlers && !((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) continue;
-                    if (!recipesForStacksWildcard.isEmpty()) {
-                        if (isRecipesFor(displaysHolder, recipesForStacksWildcard, display)) {
-                            set.add(display);
-                            continue;
-                        }
-                    }
-                    if (!usagesForStacksWildcard.isEmpty()) {
-                        if (isUsagesFor(displaysHolder, usagesForStacksWildcard, display)) {
-                            set.add(display);
-                        }
-                    }
+        boolean found = false;
+        Map<DisplayCategory<?>, Set<Display>> workstationDisplays = new HashMap<>();
+        Set<CategoryIdentifier<?>> workstationCategories = collectWorkstationCategories(Iterables.concat(usagesForStacks, usagesForStacksWildcard));
+        for (CategoryRegistry.CategoryConfiguration<?> configuration : CategoryRegistry.getInstance()) {
+            checkCancelled(cancelled);
+            DisplayCategory<?> category = configuration.getCategory();
+            if (processingVisibilityHandlers && CategoryRegistry.getInstance().isCategoryInvisible(category)) continue;
+            CategoryIdentifier<?> categoryId = configuration.getCategoryIdentifier();
+            if (!filteringCategories.isEmpty() && !filteringCategories.contains(categoryId)) continue;
+            List<Display> displays = displayRegistry.get((CategoryIdentifier<Display>) categoryId);
+            Set<Display> set = new ReferenceLinkedOpenHashSet<>();
+            displaysLock.lock();
+            try {
+                if (searchedCategories.contains(categoryId)) { // If the category is in the search, add all displays
+                    addVisible(processingVisibilityHandlers, displayRegistry, configuration, displays, set);
+                } else if (candidates != null) {
+                    addCandidates(processingVisibilityHandlers, displayRegistry, configuration, candidates.get(categoryId), set);
+                } else {
+                    addRecipesAndUsages(processingVisibilityHandlers, displayRegistry, displaysHolder, configuration, displays, recipesForStacks, usagesForStacks, set);
                 }
-            });
+            } finally {
+                displaysLock.unlock();
+            }
+            
+            // Add live displays per category
+            for (GeneratorRun run : categoryRuns.getOrDefault(categoryId, List.of())) {
+                checkCancelled(cancelled);
+                set.addAll(run.join());
+            }
+            Set<Display> global = globalDisplays.remove(category);
+            if (global != null) {
+                set.addAll(global);
+            }
+            
+            Set<Display> workstationSet = new ReferenceLinkedOpenHashSet<>();
+            if (!searchedCategories.contains(categoryId) && workstationCategories.contains(categoryId)) {
+                categories.add(categoryId);
+                displaysLock.lock();
+                try {
+                    addVisible(processingVisibilityHandlers, displayRegistry, configuration, displays, workstationSet);
+                } finally {
+                    displaysLock.unlock();
+                }
+            }
+            
+            if (set.isEmpty() && !found) {
+                // The wildcard search may still run, whose displays go before the workstation displays
+                if (!workstationSet.isEmpty()) {
+                    workstationDisplays.put(category, workstationSet);
+                }
+                continue;
+            }
+            found = true;
+            set.addAll(workstationSet);
+            sink.accept(category, set);
         }
         
-        forCategories(processingVisibilityHandlers, filteringCategories, displayRegistry, result, (configuration, categoryId, displays, set) -> {
-            if (categories.contains(categoryId)) return;
-            for (EntryStack<?> usagesFor : Iterables.concat(usagesForStacks, usagesForStacksWildcard)) {
-                if (isStackWorkStationOfCategory(configuration, usagesFor)) {
-                    categories.add(categoryId);
-                    if (processingVisibilityHandlers) {
-                        set.addAll(CollectionUtils.filterToSet(displays, display -> ((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)));
+        for (Map.Entry<DisplayCategory<?>, Set<Display>> entry : globalDisplays.entrySet()) {
+            found = true;
+            sink.accept(entry.getKey(), entry.getValue());
+        }
+        
+        Map<DisplayCategory<?>, Set<Display>> result = Maps.newHashMap();
+        if (!found && (!recipesForStacksWildcard.isEmpty() || !usagesForStacksWildcard.isEmpty())) {
+            // Run wildcard search because no displays were found
+            displaysLock.lock();
+            try {
+                @Nullable Map<CategoryIdentifier<?>, List<Display>> wildcardCandidates = collectCandidates(displaysHolder, recipesForStacksWildcard, usagesForStacksWildcard);
+                forCategories(processingVisibilityHandlers, filteringCategories, displayRegistry, result, (configuration, categoryId, displays, set) -> {
+                    checkCancelled(cancelled);
+                    if (searchedCategories.contains(categoryId)) return;
+                    if (wildcardCandidates != null) {
+                        addCandidates(processingVisibilityHandlers, displayRegistry, configuration, wildcardCandidates.get(categoryId), set);
                     } else {
-                        set.addAll(displays);
+                        addRecipesAndUsages(processingVisibilityHandlers, displayRegistry, displaysHolder, configuration, displays, recipesForStacksWildcard, usagesForStacksWildcard, set);
                     }
-                    break;
+                });
+            } finally {
+                displaysLock.unlock();
+            }
+        }
+        for (Map.Entry<DisplayCategory<?>, Set<Display>> entry : workstationDisplays.entrySet()) {
+            getOrPutEmptyLinkedSet(result, entry.getKey()).addAll(entry.getValue());
+        }
+        result.forEach(sink);
+        boolean complete = true;
+        for (GeneratorRun run : Iterables.concat(globalRuns, Iterables.concat(categoryRuns.values()))) {
+            complete &= run.isComplete();
+        }
+        return new CollectedDisplays(generatorsCount, complete);
+    }
+    
+    /**
+     * @param complete whether no live display generator was skipped or ran out of its budget, only complete views are cached
+     */
+    private record CollectedDisplays(int generatorsCount, boolean complete) {}
+    
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+    
+    private static void addVisible(boolean processingVisibilityHandlers, DisplayRegistry displayRegistry, CategoryRegistry.CategoryConfiguration<?> configuration, List<Display> displays, Set<Display> set) {
+        for (Display display : displays) {
+            if (!processingVisibilityHandlers || ((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) {
+                set.add(display);
+            }
+        }
+    }
+    
+    private static void addRecipesAndUsages(boolean processingVisibilityHandlers, DisplayRegistry displayRegistry, DisplaysHolder displaysHolder, CategoryRegistry.CategoryConfiguration<?> configuration, List<Display> displays, List<EntryStack<?>> recipesForStacks, List<EntryStack<?>> usagesForStacks, Set<Display> set) {
+        for (Display display : displays) {
+            if (processingVisibilityHandlers && !((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) continue;
+            if (!recipesForStacks.isEmpty()) {
+                if (isRecipesFor(displaysHolder, recipesForStacks, display)) {
+                    set.add(display);
+                    continue;
                 }
             }
-        });
-        
-        // Merging displays
-        Stopwatch mergingStopwatch = Stopwatch.createStarted(), sortingStopwatch = Stopwatch.createUnstarted();
+            if (!usagesForStacks.isEmpty()) {
+                if (isUsagesFor(displaysHolder, usagesForStacks, display)) {
+                    set.add(display);
+                }
+            }
+        }
+    }
+    
+    private static Set<CategoryIdentifier<?>> collectWorkstationCategories(Iterable<EntryStack<?>> stacks) {
+        CategoryRegistryImpl categoryRegistry = (CategoryRegistryImpl) CategoryRegistry.getInstance();
+        Set<CategoryIdentifier<?>> categories = new HashSet<>();
+        for (EntryStack<?> stack : stacks) {
+            categories.addAll(categoryRegistry.getCategoriesByWorkstation(stack));
+        }
+        return categories;
+    }
+    
+    private static void logBuildTime(String message) {
+        if (ConfigObject.getInstance().doDebugSearchTimeRequired()) {
+            InternalLogger.getInstance().info(message);
+        } else {
+            InternalLogger.getInstance().trace(message);
+        }
+    }
+    
+    static void cache(ViewCache.Key key, int inventoryRevision, Map<DisplayCategory<?>, Set<Display>> displays, Map<DisplayCategory<?>, List<DisplaySpec>> specs) {
+        CACHE.put(key, inventoryRevision, displays, specs);
+    }
+    
+    /**
+     * Merges and sorts the displays found for a recipe view.
+     */
+    static Map<DisplayCategory<?>, List<DisplaySpec>> buildSpecs(Map<DisplayCategory<?>, Set<Display>> result, boolean merging) {
         Map<DisplayCategory<?>, List<DisplaySpec>> merged = (Map<DisplayCategory<?>, List<DisplaySpec>>) (Map) new LinkedHashMap<>();
         for (Map.Entry<DisplayCategory<?>, Set<Display>> entry : result.entrySet()) {
             merged.put(entry.getKey(), new ArrayList<>(entry.getValue()));
         }
         
-        if (builder.isMergingDisplays() && ConfigObject.getInstance().doMergeDisplayUnderOne()) {
+        if (merging) {
             mergeAndOptimize(result, merged);
         }
         
-        mergingStopwatch.stop();
-        // Sorting displays
-        sortingStopwatch.start();
-        Map<DisplayCategory<?>, List<DisplaySpec>> sorted = sortDisplays(merged);
-        sortingStopwatch.stop();
-        
-        String message = String.format("Built Recipe View in %s for %d categories, %d recipes for, %d usages for and %d live recipe generators.",
-                stopwatch.stop(), categories.size(), recipesForStacks.size(), usagesForStacks.size(), generatorsCount);
-        if (ConfigObject.getInstance().doDebugSearchTimeRequired()) {
-            InternalLogger.getInstance().info(message);
-        } else {
-            InternalLogger.getInstance().trace(message);
+        return sortDisplays(merged);
+    }
+    
+    /**
+     * Looks up the recipes and usages of the stacks in the display cache, grouped by category
+     * in registration order, so they do not have to be found by checking every display.
+     *
+     * @return the candidate displays by category, or {@code null} if the cache does not index displays
+     */
+    @Nullable
+    private static Map<CategoryIdentifier<?>, List<Display>> collectCandidates(DisplaysHolder displaysHolder, List<EntryStack<?>> recipesFor, List<EntryStack<?>> usagesFor) {
+        DisplayCache cache = displaysHolder.cache();
+        if (!cache.doesCache()) return null;
+        Set<Display> candidates = new ReferenceOpenHashSet<>();
+        Iterables.addAll(candidates, cache.getAllDisplaysByOutputs(recipesFor));
+        Iterables.addAll(candidates, cache.getAllDisplaysByInputs(usagesFor));
+        Map<CategoryIdentifier<?>, List<Display>> byCategory = new HashMap<>();
+        for (Display display : candidates) {
+            byCategory.computeIfAbsent(display.getCategoryIdentifier(), id -> new ArrayList<>()).add(display);
+        }
+        Comparator<Display> registrationOrder = Comparator.comparingInt(cache::ordinalOf);
+        for (List<Display> displays : byCategory.values()) {
+            displays.sort(registrationOrder);
+        }
+        return byCategory;
+    }
+    
+    private static void addCandidates(boolean processingVisibilityHandlers, DisplayRegistry displayRegistry, CategoryRegistry.CategoryConfiguration<?> configuration, @Nullable List<Display> candidates, Set<Display> set) {
+        if (candidates == null) return;
+        for (Display display : candidates) {
+            if (!processingVisibilityHandlers || ((DisplayRegistryImpl) displayRegistry).isDisplayVisible(configuration.getCategory(), display)) {
+                set.add(display);
+            }
         }
-        return sorted;
     }
     
     private static Map<DisplayCategory<?>, List<DisplaySpec>> sortDisplays(Map<DisplayCategory<?>, List<DisplaySpec>> unsorted) {
+        Map<DisplayCategory<?>, List<DisplaySpec>> result = createSortedMap();
+        result.putAll(unsorted);
+        return result;
+    }
+    
+    /**
+     * Creates a map that keeps the categories of a recipe view in their configured order.
+     */
+    static Map<DisplayCategory<?>, List<DisplaySpec>> createSortedMap() {
         Object2IntMap<CategoryIdentifier<?>> categoryOrder = new Object2IntOpenHashMap<>();
         categoryOrder.defaultReturnValue(Integer.MAX_VALUE);
         int i = 100000;
@@ -240,9 +467,7 @@ public class ViewsImpl implements Views {
         for (CategoryIdentifier<?> identifier : ConfigObject.getInstance().getCategoryOrdering()) {
             categoryOrder.put(identifier, i++);
         }
-        Map<DisplayCategory<?>, List<DisplaySpec>> result = new TreeMap<>(Comparator.comparingInt(category -> categoryOrder.getInt(category.getCategoryIdentifier())));
-        result.putAll(unsorted);
-        return result;
+        return new TreeMap<>(Comparator.comparingInt(category -> categoryOrder.getInt(category.getCategoryIdentifier())));
     }
     
     private static void forCategories(boolean processingVisibilityHandlers, Set<CategoryIdentifier<?>> filteringCategories, DisplayRegistry displayRegistry, Map<DisplayCategory<?>, Set<Display>> result, QuadConsumer<CategoryRegistry.CategoryConfiguration<?>, CategoryIdentifier<?>, List<Display>, Set<Display>> displayConsumer) {
@@ -290,11 +515,9 @@ public class ViewsImpl implements Views {
     
     private static boolean checkUsages(List<EntryStack<?>> stacks, Display display, List<EntryIngredient> entries) {
         for (EntryIngredient results : entries) {
-            for (EntryStack<?> otherEntry : results) {
-                for (EntryStack<?> recipesFor : stacks) {
-                    if (EntryStacks.equalsFuzzy(otherEntry, recipesFor)) {
-                        return true;
-                    }
+            for (EntryStack<?> recipesFor : stacks) {
+                if (EntryIngredientImpl.containsFuzzy(results, recipesFor)) {
+                    return true;
                 }
             }
         }
@@ -402,25 +625,19 @@ public class ViewsImpl implements Views {
         return new CraftableFilterCalculator();
     }
     
-    private static <T> boolean isStackWorkStationOfCategory(CategoryRegistry.CategoryConfiguration<?> category, EntryStack<T> stack) {
-        for (EntryIngredient ingredient : category.getWorkstations()) {
-            if (EntryIngredients.testFuzzy(ingredient, stack)) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
     @Override
     public void startReload() {
-        
+        GENERATOR_PENALTIES.clear();
     }
     
     private static void mergeAndOptimize(Map<DisplayCategory<?>, Set<Display>> displays, Map<DisplayCategory<?>, List<DisplaySpec>> resultSpec) {
+        DisplayCache cache = ((DisplayRegistryImpl) DisplayRegistry.getInstance()).displaysHolder().cache();
         for (Map.Entry<DisplayCategory<?>, Set<Display>> entry : displays.entrySet()) {
             DisplayMerger<Display> merger = (DisplayMerger<Display>) entry.getKey().getDisplayMerger();
             
-            if (merger != null) {
+            if (merger instanceof ContentDisplayMerger) {
+                resultSpec.put(entry.getKey(), mergeByStructure(cache, merger, entry.getValue()));
+            } else if (merger != null) {
                 Map<WrappedDisplaySpec, WrappedDisplaySpec> wrappedSet = new LinkedHashMap<>();
                 List<WrappedDisplaySpec> specs = new ArrayList<>();
                 
@@ -439,6 +656,152 @@ public class ViewsImpl implements Views {
         }
     }
     
+    /**
+     * Merges displays by their structural hashes precomputed by the display cache, only displays with
+     * the same hash are compared, and they are only compared with the displays of their own bucket.
+     */
+    private static List<DisplaySpec> mergeByStructure(DisplayCache cache, DisplayMerger<Display> merger, Set<Display> displays) {
+        Long2ObjectMap<List<WrappedDisplaySpec>> buckets = new Long2ObjectOpenHashMap<>(displays.size());
+        List<DisplaySpec> specs = new ArrayList<>();
+        
+        for (Display display : sortAutoCrafting(displays)) {
+            long hash = cache.structuralHashOf(display);
+            List<WrappedDisplaySpec> bucket = buckets.get(hash);
+            WrappedDisplaySpec mergeable = null;
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                buckets.put(hash, bucket);
+            } else {
+                for (WrappedDisplaySpec spec : bucket) {
+                    if (merger.canMerge(spec.provideInternalDisplay(), display)) {
+                        mergeable = spec;
+                        break;
+                    }
+                }
+            }
+            if (mergeable != null) {
+                mergeable.add(display);
+            } else {
+                WrappedDisplaySpec wrapped = new WrappedDisplaySpec(merger, display, (int) (hash ^ hash >>> 32));
+                bucket.add(wrapped);
+                specs.add(wrapped);
+            }
+        }
+        
+        return specs;
+    }
+    
+    /**
+     * Tracks how often a live display generator exceeded its budget. Every miss adds to the penalty and every
+     * run within the budget takes one off, so only a generator that keeps missing reaches {@link #MISS_THRESHOLD}.
+     * It is then skipped for the next {@link #SKIPPED_BUILDS} views, after which it is given another chance.
+     */
+    private static class GeneratorPenalty {
+        private static final int MISS_THRESHOLD = 3;
+        private static final int SKIPPED_BUILDS = 20;
+        private int misses;
+        private int skips;
+        
+        private static GeneratorPenalty of(DynamicDisplayGenerator<?> generator) {
+            return GENERATOR_PENALTIES.computeIfAbsent(generator, g -> new GeneratorPenalty());
+        }
+        
+        private synchronized boolean skip() {
+            if (this.skips <= 0) return false;
+            this.skips--;
+            return true;
+        }
+        
+        /**
+         * @return whether the generator is skipped from now on
+         */
+        private synchronized boolean miss() {
+            if (++this.misses < MISS_THRESHOLD) return false;
+            this.misses = MISS_THRESHOLD - 1;
+            this.skips = SKIPPED_BUILDS;
+            return true;
+        }
+        
+        private synchronized void hit() {
+            if (this.misses > 0) {
+                this.misses--;
+            }
+        }
+    }
+    
+    /**
+     * A live display generator running on the generator executor, whose displays are skipped
+     * if it does not finish within its budget. A generator that exceeded its budget is interrupted,
+     * and is penalized by its {@link GeneratorPenalty}.
+     */
+    private static class GeneratorRun {
+        private final DynamicDisplayGenerator<Display> generator;
+        private final GeneratorPenalty penalty;
+        @Nullable
+        private final Future<List<Display>> future;
+        private final long budget;
+        private final long deadline;
+        private volatile boolean complete;
+        
+        private GeneratorRun(DisplayRegistry displayRegistry, DynamicDisplayGenerator<Display> generator, ViewSearchBuilder builder, long budget) {
+            this.generator = generator;
+            this.penalty = GeneratorPenalty.of(generator);
+            this.budget = budget;
+            this.deadline = System.nanoTime() + budget;
+            if (this.penalty.skip()) {
+                this.future = null;
+                return;
+            }
+            this.complete = true;
+            this.future = GENERATOR_EXECUTOR.submit(() -> {
+                BUILDER.set(builder);
+                long start = System.nanoTime();
+                
+                try {
+                    List<Display> displays = new ArrayList<>();
+                    generateLiveDisplays(displayRegistry, wrapForError(generator), builder, displays::add);
+                    return displays;
+                } finally {
+                    RoughlyEnoughItemsCore.PERFORMANCE_LOGGER.record(GENERATORS_STAGE, generator.getClass().getName(), System.nanoTime() - start);
+                    BUILDER.remove();
+                }
+            });
+        }
+        
+        private List<Display> join() {
+            if (future == null) return List.of();
+            try {
+                if (budget <= 0) {
+                    return future.get();
+                }
+                List<Display> displays = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                penalty.hit();
+                return displays;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                complete = false;
+                if (penalty.miss()) {
+                    InternalLogger.getInstance().warn("Display generator %s repeatedly exceeded its budget of %dms, skipping it for the next %d views",
+                            generator, TimeUnit.NANOSECONDS.toMillis(budget), GeneratorPenalty.SKIPPED_BUILDS);
+                }
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                complete = false;
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                InternalLogger.getInstance().error(String.format("Failed to generate displays with %s", generator), e.getCause());
+            }
+            return List.of();
+        }
+        
+        /**
+         * Returns whether the generator was run and not cut off by its budget.
+         */
+        private boolean isComplete() {
+            return complete;
+        }
+    }
+    
     private static class WrappedDisplaySpec implements DisplaySpec {
         private final DisplayMerger<Display> merger;
         private final Display display;
@@ -446,9 +809,13 @@ public class ViewsImpl implements Views {
         private final int hash;
         
         public WrappedDisplaySpec(DisplayMerger<Display> merger, Display display) {
+            this(merger, display, merger.hashOf(display));
+        }
+        
+        public WrappedDisplaySpec(DisplayMerger<Display> merger, Display display, int hash) {
             this.merger = merger;
             this.display = display;
-            this.hash = merger.hashOf(display);
+            this.hash = hash;
         }
         
         @Override
@@ -23,19 +23,18 @@
 
 package me.shedaniel.rei.impl.common.entry;
 
-import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectMaps;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
 import me.shedaniel.math.Rectangle;
 import me.shedaniel.rei.api.client.ClientHelper;
 import me.shedaniel.rei.api.client.gui.Renderer;
 import me.shedaniel.rei.api.client.gui.widgets.Tooltip;
 import me.shedaniel.rei.api.client.gui.widgets.TooltipContext;
 import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.settings.EntrySettingsAdapterRegistry;
 import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.api.common.util.FormattingUtils;
 import me.shedaniel.rei.impl.client.util.CrashReportUtils;
+import me.shedaniel.rei.impl.common.entry.comparison.NbtHasherProviderImpl;
 import net.minecraft.CrashReport;
 import net.minecraft.CrashReportCategory;
 import net.minecraft.client.gui.GuiGraphics;
@@ -49,60 +48,102 @@ import org.apache.commons.lang3.mutable.MutableObject;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.stream.Stream;
 
 @ApiStatus.Internal
-public abstract class AbstractEntryStack<A> implements EntryStack<A>, Renderer {
-    private static final Short2ObjectMap<Object> EMPTY_SETTINGS = Short2ObjectMaps.emptyMap();
-    private Short2ObjectMap<Object> settings = null;
+public abstract class AbstractEntryStack<A> implements EntryStack<A>, Renderer, HashCachingEntryStack {
+    /**
+     * Shared by all stacks without settings, the settings are stored in a slot per setting id once any is set.
+     */
+    private static final Object[] EMPTY_SETTINGS = new Object[0];
+    private static volatile int hashGeneration = 1;
+    private Object[] settings = EMPTY_SETTINGS;
+    /**
+     * Whether the hashes are memoized, only set once the stack is owned by the entry registry,
+     * as other stacks may still have their values mutated in place.
+     */
+    private volatile boolean memoizingHashes;
+    private long exactHash, fuzzyHash;
+    private volatile int exactHashGeneration, fuzzyHashGeneration;
+    
+    /**
+     * Invalidates the memoized hashes of every stack, to be called when the comparators
+     * contributing to the hashes change.
+     */
+    public static synchronized void invalidateHashes() {
+        hashGeneration++;
+    }
+    
+    @Override
+    public long cachedHash(ComparisonContext context) {
+        if (!memoizingHashes) {
+            return getDefinition().hash(this, getValue(), context);
+        }
+        int generation = hashGeneration;
+        if (context.isExact()) {
+            if (exactHashGeneration == generation) return exactHash;
+            long hash = getDefinition().hash(this, getValue(), context);
+            this.exactHash = hash;
+            this.exactHashGeneration = generation;
+            return hash;
+        } else {
+            if (fuzzyHashGeneration == generation) return fuzzyHash;
+            long hash = getDefinition().hash(this, getValue(), context);
+            this.fuzzyHash = hash;
+            this.fuzzyHashGeneration = generation;
+            return hash;
+        }
+    }
+    
+    @Override
+    public void cacheHashes() {
+        this.memoizingHashes = true;
+        int generation = hashGeneration;
+        if (exactHashGeneration != generation || fuzzyHashGeneration != generation) {
+            NbtHasherProviderImpl.hashCombined(() -> {
+                cachedHash(ComparisonContext.EXACT);
+                cachedHash(ComparisonContext.FUZZY);
+            });
+        }
+    }
+    
+    /**
+     * Returns whether any setting is set on this stack.
+     */
+    public boolean hasSettings() {
+        for (Object setting : settings) {
+            if (setting != null) return true;
+        }
+        return false;
+    }
     
     @Override
     public <T> EntryStack<A> setting(Settings<T> settings, T value) {
         short settingsId = settings.getId();
-        if (this.settings == null)
-            this.settings = Short2ObjectMaps.singleton(settingsId, value);
-        else {
-            if (this.settings.size() == 1) {
-                if (this.settings.containsKey(settingsId)) {
-                    this.settings = Short2ObjectMaps.singleton(settingsId, value);
-                    return this;
-                } else {
-                    Short2ObjectMap<Object> singletonSettings = this.settings;
-                    this.settings = new Short2ObjectOpenHashMap<>(2);
-                    this.settings.putAll(singletonSettings);
-                }
-            }
-            this.settings.put(settingsId, value);
+        if (settingsId >= this.settings.length) {
+            this.settings = Arrays.copyOf(this.settings, settingsId + 1);
         }
+        this.settings[settingsId] = value;
         return this;
     }
     
     @Override
     public <T> EntryStack<A> removeSetting(Settings<T> settings) {
-        if (this.settings != null) {
-            short settingsId = settings.getId();
-            if (this.settings.size() == 1) {
-                if (this.settings.containsKey(settingsId)) {
-                    this.settings = null;
-                }
-            } else if (this.settings.remove(settingsId) != null && this.settings.isEmpty()) {
-                this.settings = null;
-            }
+        short settingsId = settings.getId();
+        if (settingsId < this.settings.length) {
+            this.settings[settingsId] = null;
         }
         return this;
     }
     
     @Override
     public EntryStack<A> clearSettings() {
-        this.settings = null;
+        this.settings = EMPTY_SETTINGS;
         return this;
     }
     
-    protected Short2ObjectMap<Object> getSettings() {
-        return this.settings == null ? EMPTY_SETTINGS : this.settings;
-    }
-    
     @Override
     @Nullable
     public ResourceLocation getIdentifier() {
@@ -152,11 +193,9 @@ public abstract class AbstractEntryStack<A> implements EntryStack<A>, Renderer {
     }
     
     protected EntryStack<A> wrap(A value, boolean copySettings) {
-        TypedEntryStack<A> stack = new TypedEntryStack<>(getDefinition(), value);
-        if (copySettings) {
-            for (Short2ObjectMap.Entry<Object> entry : getSettings().short2ObjectEntrySet()) {
-                stack.setting(EntryStack.Settings.getById(entry.getShortKey()), entry.getValue());
-            }
+        AbstractEntryStack<A> stack = new TypedEntryStack<>(getDefinition(), value);
+        if (copySettings && this.settings.length > 0) {
+            stack.settings = this.settings.clone();
         }
         return stack;
     }
@@ -173,7 +212,8 @@ public abstract class AbstractEntryStack<A> implements EntryStack<A>, Renderer {
     @Override
     @Nullable
     public <T> T getNullable(Settings<T> settings) {
-        T o = this.settings == null ? null : (T) this.settings.get(settings.getId());
+        short settingsId = settings.getId();
+        T o = settingsId < this.settings.length ? (T) this.settings[settingsId] : null;
         o = EntrySettingsAdapterRegistry.getInstance().adapt(this, settings, o);
         return o;
     }
@@ -24,15 +24,23 @@
 package me.shedaniel.rei.impl.common.entry;
 
 import com.google.common.collect.Iterators;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import me.shedaniel.rei.api.common.entry.EntryIngredient;
 import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.settings.EntryIngredientSetting;
+import me.shedaniel.rei.api.common.entry.type.EntryType;
+import me.shedaniel.rei.api.common.entry.type.EntryTypeRegistry;
+import me.shedaniel.rei.api.common.util.EntryStacks;
 import me.shedaniel.rei.impl.Internals;
+import me.shedaniel.rei.impl.common.entry.type.EntryTypeRegistryImpl;
 import net.minecraft.nbt.ListTag;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
@@ -40,6 +48,11 @@ import java.util.stream.StreamSupport;
 
 public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
     INSTANCE;
+    /**
+     * The first ingredient interned with given stacks, by the exact hashes of the stacks.
+     */
+    @Nullable
+    private static volatile Map<InternKey, ArrayIngredient> internPool;
     
     @Override
     public EntryIngredient empty() {
@@ -74,6 +87,56 @@ public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
         return new ArrayIngredient(stacks);
     }
     
+    /**
+     * Starts interning ingredients with {@link #intern(EntryIngredient)}, until {@link #stopInterning()}.
+     */
+    public static void startInterning() {
+        internPool = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Stops interning ingredients, and releases the interned ingredients. This is called once the displays are registered.
+     */
+    public static void stopInterning() {
+        internPool = null;
+    }
+    
+    /**
+     * Returns an ingredient sharing the stacks and hash indexes of the first equal ingredient interned since
+     * {@link #startInterning()}, or the ingredient itself if it is the first. The returned ingredient keeps its own
+     * settings, while its stacks are shared with other ingredients and must be copied before being modified,
+     * like {@code ingredient.map(stack -> stack.copy().tooltip(...))} does.
+     */
+    @Override
+    public EntryIngredient intern(EntryIngredient ingredient) {
+        Map<InternKey, ArrayIngredient> pool = internPool;
+        if (pool == null || !(ingredient instanceof ArrayIngredient arrayIngredient) || !arrayIngredient.canShareStacks()) {
+            return ingredient;
+        }
+        ArrayIngredient interned = pool.putIfAbsent(InternKey.of(arrayIngredient.array), arrayIngredient);
+        // Equal hashes are verified, so a hash collision never merges different stacks
+        if (interned == null || interned == arrayIngredient || !interned.stacksEqualExact(arrayIngredient)) {
+            return ingredient;
+        }
+        return new ArrayIngredient(interned.array, interned.index);
+    }
+    
+    /**
+     * Returns whether the ingredient contains a stack fuzzily equal to the given stack,
+     * using the hash index of large ingredients instead of comparing every stack.
+     */
+    public static boolean containsFuzzy(EntryIngredient ingredient, EntryStack<?> stack) {
+        if (ingredient instanceof ArrayIngredient arrayIngredient) {
+            return arrayIngredient.indexOfFuzzy(stack) != -1;
+        }
+        for (EntryStack<?> other : ingredient) {
+            if (EntryStacks.equalsFuzzy(other, stack)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @Override
     public EntryIngredient.Builder builder() {
         return new EntryIngredientBuilder(0);
@@ -259,6 +322,10 @@ public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
     private static abstract class AbstractEntryIngredient extends AbstractList<EntryStack<?>> implements EntryIngredient {
         private Map<EntryIngredientSetting<?>, Object> settings = null;
         
+        protected boolean hasSettings() {
+            return settings != null;
+        }
+        
         @Override
         @Nullable
         public <T> T getSetting(EntryIngredientSetting<T> setting) {
@@ -399,10 +466,45 @@ public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
     
     private static class ArrayIngredient extends AbstractEntryIngredient implements EntryIngredient, RandomAccess {
         private static final long serialVersionUID = -2764017481108945198L;
+        /**
+         * Ingredients with at least this many stacks index them by hash on the first lookup.
+         */
+        private static final int INDEX_THRESHOLD = 16;
         private final EntryStack<?>[] array;
+        private final StackIndex index;
         
         ArrayIngredient(EntryStack<?>[] array) {
+            this(array, new StackIndex());
+        }
+        
+        private ArrayIngredient(EntryStack<?>[] array, StackIndex index) {
             this.array = Objects.requireNonNull(array);
+            this.index = index;
+        }
+        
+        /**
+         * Returns whether the stacks may be shared with equal ingredients, stacks with settings such as
+         * tooltips are never shared, as their settings are not part of their equality.
+         */
+        private boolean canShareStacks() {
+            if (hasSettings()) return false;
+            for (EntryStack<?> stack : array) {
+                if (!(stack instanceof AbstractEntryStack<?> abstractStack) || abstractStack.hasSettings()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private boolean stacksEqualExact(ArrayIngredient other) {
+            EntryStack<?>[] a = this.array, b = other.array;
+            if (a.length != b.length) return false;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i].getType() != b[i].getType() || !EntryStacks.equalsExact(a[i], b[i])) {
+                    return false;
+                }
+            }
+            return true;
         }
         
         @Override
@@ -438,9 +540,38 @@ public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
             throw new UnsupportedOperationException();
         }
         
+        /**
+         * Returns whether the hash index can be trusted to find every stack equal to the given stack.
+         * Bridges can make stacks of different types equal while their hashes differ, so the index is only used when
+         * the stack's type has no bridges, or when every stack of the ingredient has the same type as it.
+         */
+        private boolean canUseIndex(EntryStack<?> stack) {
+            EntryType<?> type = stack.getType();
+            return index.isOfType(array, type) || !((EntryTypeRegistryImpl) EntryTypeRegistry.getInstance()).hasBridges(type);
+        }
+        
+        private int indexOfFuzzy(EntryStack<?> stack) {
+            EntryStack<?>[] a = this.array;
+            if (a.length >= INDEX_THRESHOLD && canUseIndex(stack)) {
+                int i = index.fuzzy(a).get(EntryStacks.hashFuzzy(stack));
+                if (i == -1) return -1;
+                if (EntryStacks.equalsFuzzy(a[i], stack)) return i;
+            }
+            for (int i = 0; i < a.length; i++)
+                if (EntryStacks.equalsFuzzy(a[i], stack))
+                    return i;
+            return -1;
+        }
+        
         @Override
         public int indexOf(Object o) {
             EntryStack<?>[] a = this.array;
+            if (a.length >= INDEX_THRESHOLD && o instanceof AbstractEntryStack<?> stack && canUseIndex(stack)) {
+                // Equal stacks share the exact hash, so the index only needs to confirm the first match
+                int i = index.exact(a).get(EntryStacks.hashExact(stack));
+                if (i == -1) return -1;
+                if (o.equals(a[i])) return i;
+            }
             if (o == null) {
                 for (int i = 0; i < a.length; i++)
                     if (a[i] == null)
@@ -505,6 +636,83 @@ public enum EntryIngredientImpl implements Internals.EntryIngredientProvider {
         }
     }
     
+    /**
+     * Hash indexes of the stacks of an {@link ArrayIngredient}, built on first use and shared
+     * between ingredients sharing the same stacks.
+     */
+    private static class StackIndex {
+        private static final Object MIXED_TYPES = new Object();
+        @Nullable
+        private volatile Long2IntMap exact;
+        @Nullable
+        private volatile Long2IntMap fuzzy;
+        /**
+         * The type shared by all stacks, or {@link #MIXED_TYPES} if they have different types.
+         */
+        @Nullable
+        private volatile Object type;
+        
+        private boolean isOfType(EntryStack<?>[] array, EntryType<?> type) {
+            Object common = this.type;
+            if (common == null) {
+                common = array[0].getType();
+                for (EntryStack<?> stack : array) {
+                    if (stack.getType() != common) {
+                        common = MIXED_TYPES;
+                        break;
+                    }
+                }
+                this.type = common;
+            }
+            return common == type;
+        }
+        
+        private Long2IntMap exact(EntryStack<?>[] array) {
+            Long2IntMap index = this.exact;
+            if (index == null) {
+                this.exact = index = build(array, ComparisonContext.EXACT);
+            }
+            return index;
+        }
+        
+        private Long2IntMap fuzzy(EntryStack<?>[] array) {
+            Long2IntMap index = this.fuzzy;
+            if (index == null) {
+                this.fuzzy = index = build(array, ComparisonContext.FUZZY);
+            }
+            return index;
+        }
+        
+        private static Long2IntMap build(EntryStack<?>[] array, ComparisonContext context) {
+            Long2IntMap index = new Long2IntOpenHashMap(array.length);
+            index.defaultReturnValue(-1);
+            for (int i = 0; i < array.length; i++) {
+                index.putIfAbsent(EntryStacks.hash(array[i], context), i);
+            }
+            return index;
+        }
+    }
+    
+    private record InternKey(long[] hashes) {
+        private static InternKey of(EntryStack<?>[] array) {
+            long[] hashes = new long[array.length];
+            for (int i = 0; i < array.length; i++) {
+                hashes[i] = EntryStacks.hashExact(array[i]);
+            }
+            return new InternKey(hashes);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InternKey key && Arrays.equals(hashes, key.hashes);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(hashes);
+        }
+    }
+    
     private static class SettingsHandler {
         private static Map<EntryIngredientSetting<?>, Object> set(Map<EntryIngredientSetting<?>, Object> map, EntryIngredientSetting<?> setting, Object value) {
             if (map == null) {
@@ -27,6 +27,8 @@ import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.comparison.EntryComparator;
 import me.shedaniel.rei.api.common.entry.comparison.EntryComparatorRegistry;
 import me.shedaniel.rei.api.common.registry.ReloadStage;
+import me.shedaniel.rei.impl.common.entry.AbstractEntryStack;
+import me.shedaniel.rei.impl.common.util.HashMixer;
 import org.jetbrains.annotations.ApiStatus;
 
 import java.util.ArrayList;
@@ -38,6 +40,7 @@ import java.util.Map;
 public abstract class EntryComparatorRegistryImpl<T, S> implements EntryComparatorRegistry<T, S> {
     private final List<EntryComparator<T>> globalComparators = new ArrayList<>();
     private final Map<S, EntryComparator<T>> comparators = new IdentityHashMap<>();
+    private boolean reloading;
     
     @Override
     public void register(EntryComparator<T> comparator, S entry) {
@@ -46,11 +49,23 @@ public abstract class EntryComparatorRegistryImpl<T, S> implements EntryComparat
             comparator = existing.then(comparator);
         }
         this.comparators.put(entry, comparator);
+        invalidateHashes();
     }
     
     @Override
     public void registerGlobal(EntryComparator<T> comparator) {
         this.globalComparators.add(comparator);
+        invalidateHashes();
+    }
+    
+    /**
+     * Invalidates the memoized hashes of the stacks after a comparator changed outside of reload,
+     * comparators registered during reload are covered by the invalidation at the end of the reload.
+     */
+    private void invalidateHashes() {
+        if (!reloading) {
+            AbstractEntryStack.invalidateHashes();
+        }
     }
     
     @Override
@@ -62,6 +77,14 @@ public abstract class EntryComparatorRegistryImpl<T, S> implements EntryComparat
     public void startReload() {
         globalComparators.clear();
         comparators.clear();
+        this.reloading = true;
+        AbstractEntryStack.invalidateHashes();
+    }
+    
+    @Override
+    public void endReload() {
+        this.reloading = false;
+        AbstractEntryStack.invalidateHashes();
     }
     
     public abstract S getEntry(T stack);
@@ -72,14 +95,28 @@ public abstract class EntryComparatorRegistryImpl<T, S> implements EntryComparat
     public long hashOf(ComparisonContext context, T stack) {
         EntryComparator<T> comparator = comparators.get(getEntry(stack));
         if (comparator == null) comparator = defaultComparator();
-        long hash = 1L;
-        hash = hash * 31 + comparator.hash(context, stack);
+        long hash = HashMixer.combine(1L, comparator.hash(context, stack));
         for (EntryComparator<T> globalComparator : globalComparators) {
-            hash = hash * 31 + globalComparator.hash(context, stack);
+            hash = HashMixer.combine(hash, globalComparator.hash(context, stack));
         }
         return hash;
     }
     
+    /**
+     * Returns whether two stacks of the same entry are equal. Comparators only define hashes, so stacks with
+     * registered comparators are compared by their hashes, while the other stacks are compared by {@link #defaultEquals}.
+     */
+    public boolean equals(ComparisonContext context, T first, T second) {
+        if (globalComparators.isEmpty() && !comparators.containsKey(getEntry(first))) {
+            return defaultEquals(context, first, second);
+        }
+        return hashOf(context, first) == hashOf(context, second);
+    }
+    
+    protected boolean defaultEquals(ComparisonContext context, T first, T second) {
+        return hashOf(context, first) == hashOf(context, second);
+    }
+    
     @Override
     public boolean containsComparator(S item) {
         return !globalComparators.isEmpty() || comparators.containsKey(item);
@@ -23,6 +23,7 @@
 
 package me.shedaniel.rei.impl.common.entry.comparison;
 
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.comparison.EntryComparator;
 import me.shedaniel.rei.api.common.entry.comparison.ItemComparatorRegistry;
 import me.shedaniel.rei.api.common.plugins.REIPlugin;
@@ -49,6 +50,11 @@ public class ItemComparatorRegistryImpl extends EntryComparatorRegistryImpl<Item
         return defaultComparator;
     }
     
+    @Override
+    protected boolean defaultEquals(ComparisonContext context, ItemStack first, ItemStack second) {
+        return !context.isExact() || ItemStack.isSameItemSameComponents(first, second);
+    }
+    
     @Override
     public void acceptPlugin(REIPlugin<?> plugin) {
         plugin.registerItemComparators(this);
@@ -24,23 +24,50 @@
 package me.shedaniel.rei.impl.common.entry.comparison;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.MapMaker;
+import com.mojang.serialization.Codec;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import me.shedaniel.rei.api.common.display.basic.BasicDisplay;
 import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.comparison.EntryComparator;
 import me.shedaniel.rei.impl.Internals;
+import me.shedaniel.rei.impl.common.util.HashMixer;
+import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
+import net.minecraft.core.RegistryAccess;
 import net.minecraft.core.component.DataComponentMap;
+import net.minecraft.core.component.DataComponentPatch;
 import net.minecraft.core.component.DataComponentType;
 import net.minecraft.core.component.PatchedDataComponentMap;
 import net.minecraft.core.component.TypedDataComponent;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.*;
+import net.minecraft.resources.RegistryOps;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.util.Unit;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public enum NbtHasherProviderImpl implements Internals.NbtHasherProvider {
     INSTANCE;
+    private static final long REMOVED_HASH = 0x5DEECE66DL;
+    private static final ThreadLocal<CombinedScope> COMBINED_SCOPE = new ThreadLocal<>();
+    /**
+     * The hashes of the component values that are hashed by their serialized form, by identity. Component values
+     * are immutable and shared between stacks, so each value instance is only encoded once.
+     */
+    private static final Map<Object, Long> VALUE_HASHES = new MapMaker().weakKeys().makeMap();
+    private static final RegistryOps<Tag> BUILT_IN_OPS = RegistryOps.create(NbtOps.INSTANCE, new BuiltInRegistryLookup());
+    @Nullable
+    private static volatile OpsCache opsCache;
     private final EntryComparator<DataComponentMap> defaultHasher = _provide();
     
     @Override
@@ -49,10 +76,139 @@ public enum NbtHasherProviderImpl implements Internals.NbtHasherProvider {
         return _provide(ignoredKeys);
     }
     
+    /**
+     * Runs {@code action} with the component hashes of the last hashed component map remembered, so hashing a stack
+     * for both contexts traverses and hashes its components once, even when the contexts use hashers ignoring
+     * different components.
+     */
+    public static void hashCombined(Runnable action) {
+        if (COMBINED_SCOPE.get() != null) {
+            action.run();
+            return;
+        }
+        
+        COMBINED_SCOPE.set(new CombinedScope());
+        try {
+            action.run();
+        } finally {
+            COMBINED_SCOPE.remove();
+        }
+    }
+    
     private EntryComparator<DataComponentMap> _provide(DataComponentType<?>... ignoredKeys) {
         return new Hasher(ignoredKeys);
     }
     
+    /**
+     * Returns the 64-bit hash of a component, from the registry id of its type and a 64-bit hash of its value.
+     *
+     * @param value the value of the component, or {@code null} if a patch removes the component
+     */
+    private static long componentHash(DataComponentType<?> type, @Nullable Object value) {
+        int id = BuiltInRegistries.DATA_COMPONENT_TYPE.getId(type);
+        long typeHash = id != -1 ? id : (long) System.identityHashCode(type) << 32;
+        return HashMixer.combine(typeHash, valueHash(type, value));
+    }
+    
+    /**
+     * Hashes simple values directly, and other values by their serialized form, as their {@link Object#hashCode()}
+     * only provides 32 bits. The hashes of serialized values are cached by the identity of the value.
+     */
+    static <T> long valueHash(DataComponentType<T> type, @Nullable Object value) {
+        if (value == null) return REMOVED_HASH;
+        if (value instanceof Boolean b) return b ? 1231 : 1237;
+        if (value instanceof Float || value instanceof Double) return HashMixer.mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+        if (value instanceof Number number) return HashMixer.mix(number.longValue());
+        if (value instanceof CharSequence string) return HashMixer.hashString(string);
+        if (value instanceof Enum<?> e) return HashMixer.mix(e.ordinal());
+        if (value instanceof Unit) return 1L;
+        if (value instanceof Holder<?> holder && holder.unwrapKey().isPresent()) return holderHash(holder.unwrapKey().get());
+        Long cached = VALUE_HASHES.get(value);
+        if (cached != null) return cached;
+        long hash = encodedHash(type, value);
+        VALUE_HASHES.put(value, hash);
+        return hash;
+    }
+    
+    /**
+     * Hashes the value by its serialized form against the built-in registries, which are the same before and after
+     * joining a world. Only values referencing data-driven registries are serialized with the registries of the world,
+     * where their holders serialize as their keys.
+     */
+    private static <T> long encodedHash(DataComponentType<T> type, Object value) {
+        Codec<T> codec = type.codec();
+        if (codec != null) {
+            Tag tag = encode(codec, (T) value, () -> BUILT_IN_OPS);
+            if (tag == null) tag = encode(codec, (T) value, NbtHasherProviderImpl::ops);
+            if (tag != null) return tagHash(tag);
+        }
+        return HashMixer.mix(value.hashCode());
+    }
+    
+    @Nullable
+    private static <T> Tag encode(Codec<T> codec, T value, Supplier<RegistryOps<Tag>> ops) {
+        try {
+            return codec.encodeStart(ops.get(), value).result().orElse(null);
+        } catch (RuntimeException ignored) {
+            return null;
+        }
+    }
+    
+    private static long holderHash(ResourceKey<?> key) {
+        return HashMixer.combine(HashMixer.hashString(key.registry().toString()), HashMixer.hashString(key.location().toString()));
+    }
+    
+    private static RegistryOps<Tag> ops() {
+        RegistryAccess access = BasicDisplay.registryAccess();
+        OpsCache cache = opsCache;
+        if (cache == null || cache.access() != access) {
+            opsCache = cache = new OpsCache(access, access.createSerializationContext(NbtOps.INSTANCE));
+        }
+        return cache.ops();
+    }
+    
+    /**
+     * Hashes a tag by its contents, compound entries are hashed independently of their order.
+     */
+    private static long tagHash(Tag tag) {
+        long hash = tag.getId();
+        if (tag instanceof CompoundTag compound) {
+            for (String key : compound.getAllKeys()) {
+                hash += HashMixer.combine(HashMixer.hashString(key), tagHash(compound.get(key)));
+            }
+            return HashMixer.mix(hash);
+        } else if (tag instanceof CollectionTag<?> list) {
+            for (Tag element : list) {
+                hash = HashMixer.combine(hash, tagHash(element));
+            }
+            return HashMixer.combine(hash, list.size());
+        } else if (tag instanceof FloatTag || tag instanceof DoubleTag) {
+            return HashMixer.combine(hash, Double.doubleToLongBits(((NumericTag) tag).getAsDouble()));
+        } else if (tag instanceof NumericTag number) {
+            return HashMixer.combine(hash, number.getAsLong());
+        } else {
+            return HashMixer.combine(hash, HashMixer.hashString(tag.getAsString()));
+        }
+    }
+    
+    private record OpsCache(RegistryAccess access, RegistryOps<Tag> ops) {}
+    
+    /**
+     * Looks up the built-in registries only, on first use, so hashing values without registry references
+     * does not need the registries to be loaded.
+     */
+    private static class BuiltInRegistryLookup implements RegistryOps.RegistryInfoLookup {
+        private final Map<ResourceKey<?>, Optional<? extends RegistryOps.RegistryInfo<?>>> infos = new ConcurrentHashMap<>();
+        
+        @Override
+        public <T> Optional<RegistryOps.RegistryInfo<T>> lookup(ResourceKey<? extends Registry<? extends T>> registryKey) {
+            return (Optional<RegistryOps.RegistryInfo<T>>) infos.computeIfAbsent(registryKey, key -> {
+                Registry<T> registry = (Registry<T>) BuiltInRegistries.REGISTRY.get(key.location());
+                return registry == null ? Optional.empty() : Optional.of(RegistryOps.RegistryInfo.fromRegistryLookup(registry.asLookup()));
+            });
+        }
+    }
+    
     private static class Hasher implements EntryComparator<DataComponentMap> {
         @Nullable
         private final Predicate<DataComponentType<?>> filter;
@@ -69,19 +225,84 @@ public enum NbtHasherProviderImpl implements Internals.NbtHasherProvider {
             }
         }
         
+        /**
+         * Hashes the components independently of their order, so that maps with the same components
+         * hash the same regardless of how their patches were built. Only the patch of a patched map is hashed,
+         * the prototype is given by the item, which is hashed separately.
+         */
         @Override
         public long hash(ComparisonContext context, DataComponentMap value) {
-            return this.filter == null && value instanceof PatchedDataComponentMap ? value.hashCode() : hashIgnoringKeys(value);
+            CombinedScope scope = COMBINED_SCOPE.get();
+            if (scope != null) {
+                return scope.hash(value, filter);
+            }
+            if (value instanceof PatchedDataComponentMap patched) {
+                return hashPatch(patched.asPatch());
+            }
+            
+            long i = 1L;
+            for (TypedDataComponent<?> entry : value) {
+                if (filter == null || filter.test(entry.type())) {
+                    i += componentHash(entry.type(), entry.value());
+                }
+            }
+            return i;
         }
         
-        private long hashIgnoringKeys(DataComponentMap tag) {
+        private long hashPatch(DataComponentPatch patch) {
+            if (patch.isEmpty()) return 1L;
             long i = 1L;
-            for (TypedDataComponent<?> entry : tag) {
-                if (filter.test(entry.type())) {
-                    i = i * 31 + (Objects.hashCode(entry.type()) ^ Objects.hashCode(entry.value()));
+            for (Map.Entry<DataComponentType<?>, Optional<?>> entry : patch.entrySet()) {
+                if (filter == null || filter.test(entry.getKey())) {
+                    i += componentHash(entry.getKey(), entry.getValue().orElse(null));
                 }
             }
             return i;
         }
     }
+    
+    /**
+     * The hashes of the components of the last hashed map, which every hasher sums up skipping its ignored components.
+     */
+    private static class CombinedScope {
+        @Nullable
+        private DataComponentMap value;
+        private DataComponentType<?>[] types = new DataComponentType<?>[8];
+        private long[] hashes = new long[8];
+        private int size;
+        
+        private long hash(DataComponentMap value, @Nullable Predicate<DataComponentType<?>> filter) {
+            if (this.value != value) {
+                this.size = 0;
+                if (value instanceof PatchedDataComponentMap patched) {
+                    DataComponentPatch patch = patched.asPatch();
+                    for (Map.Entry<DataComponentType<?>, Optional<?>> entry : patch.entrySet()) {
+                        add(entry.getKey(), entry.getValue().orElse(null));
+                    }
+                } else {
+                    for (TypedDataComponent<?> entry : value) {
+                        add(entry.type(), entry.value());
+                    }
+                }
+                this.value = value;
+            }
+            
+            long i = 1L;
+            for (int j = 0; j < size; j++) {
+                if (filter == null || filter.test(types[j])) {
+                    i += hashes[j];
+                }
+            }
+            return i;
+        }
+        
+        private void add(DataComponentType<?> type, @Nullable Object value) {
+            if (size == types.length) {
+                this.types = Arrays.copyOf(types, size * 2);
+                this.hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            types[size] = type;
+            hashes[size++] = componentHash(type, value);
+        }
+    }
 }
@@ -23,18 +23,22 @@
 
 package me.shedaniel.rei.impl.common.entry.type;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import it.unimi.dsi.fastutil.longs.*;
 import me.shedaniel.rei.api.client.REIRuntime;
+import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringRule;
 import me.shedaniel.rei.api.client.overlay.ScreenOverlay;
 import me.shedaniel.rei.api.client.plugins.REIClientPlugin;
 import me.shedaniel.rei.api.client.registry.entry.EntryRegistry;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.registry.ReloadStage;
-import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.common.InternalLogger;
+import me.shedaniel.rei.impl.common.entry.HashCachingEntryStack;
 import me.shedaniel.rei.impl.common.util.HNEntryStackWrapper;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -54,11 +58,21 @@ public class EntryRegistryImpl implements EntryRegistry {
     public List<EntryRegistryListener> listeners = Lists.newCopyOnWriteArrayList();
     private final EntryRegistryList registryList = new EntryRegistryListImpl();
     private FilteredEntryList filteredList;
-    private LongSet entriesHash;
     private boolean reloading;
+    /**
+     * Entries added during reload that are not hashed and committed to the registry list yet.
+     */
+    private List<EntryStack<?>> pendingStacks = new ArrayList<>();
+    /**
+     * The thread that buffered the pending entries, only it commits them when reading the registry,
+     * so reads from other threads never mutate the registry list under the reloading thread.
+     */
+    @Nullable
+    private volatile Thread pendingOwner;
+    @Nullable
+    private HashCollisionTracker collisionTracker;
     
     public EntryRegistryImpl() {
-        this.entriesHash = new LongOpenHashSet();
         this.filteredList = new PreFilteredEntryList(this, this.registryList);
         this.listeners.add(this.filteredList);
     }
@@ -67,6 +81,8 @@ public class EntryRegistryImpl implements EntryRegistry {
     public void acceptPlugin(REIClientPlugin plugin) {
         int size = size();
         plugin.registerEntries(this);
+        // Plugins forced onto the main thread buffer from it, commit before the main thread goes back to rendering
+        flushPending();
         InternalLogger.getInstance().trace("Registered %d entries from plugin %s", size() - size, plugin.getPluginProviderName());
     }
     
@@ -78,8 +94,10 @@ public class EntryRegistryImpl implements EntryRegistry {
     @Override
     public void startReload() {
         this.listeners.clear();
-        this.registryList.collectHN().clear();
-        this.entriesHash = new LongOpenHashSet();
+        this.registryList.clear();
+        this.pendingStacks = new ArrayList<>();
+        this.pendingOwner = null;
+        this.collisionTracker = ((ConfigObjectImpl) ConfigObject.getInstance()).doDebugHashCollisions() ? new HashCollisionTracker() : null;
         this.filteredList = new PreFilteredEntryList(this, this.registryList);
         this.listeners.add(filteredList);
         this.reloading = true;
@@ -87,7 +105,12 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public void endReload() {
+        flushPending();
         this.reloading = false;
+        if (this.collisionTracker != null) {
+            this.collisionTracker.report();
+            this.collisionTracker = null;
+        }
         refilter();
         REIRuntime.getInstance().getOverlay().ifPresent(ScreenOverlay::queueReloadOverlay);
         InternalLogger.getInstance().debug("Reloaded entry registry with %d entries and %d filtered entries", size(), getPreFilteredList().size());
@@ -100,21 +123,25 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public <Cache> void markFilteringRuleDirty(FilteringRule<Cache> cacheFilteringRule, Collection<EntryStack<?>> stacks, @Nullable LongCollection hashes) {
+        flushPending();
         this.filteredList.refreshFilteringFor(Set.of(cacheFilteringRule), stacks, hashes);
     }
     
     @Override
     public int size() {
+        flushOwnPending();
         return registryList.size();
     }
     
     @Override
     public Stream<EntryStack<?>> getEntryStacks() {
+        flushOwnPending();
         return registryList.stream();
     }
     
     @Override
     public List<EntryStack<?>> getPreFilteredList() {
+        flushOwnPending();
         return Collections.unmodifiableList(filteredList.getUnwrappedList());
     }
     
@@ -123,15 +150,18 @@ public class EntryRegistryImpl implements EntryRegistry {
     }
     
     public List<HNEntryStackWrapper> getPreFilteredComplexList() {
+        flushOwnPending();
         return Collections.unmodifiableList(filteredList.getList());
     }
     
     public List<HNEntryStackWrapper> getComplexList() {
+        flushOwnPending();
         return Collections.unmodifiableList(registryList.collectHN());
     }
     
     @Override
     public void refilter() {
+        flushPending();
         List<HNEntryStackWrapper> stacks = registryList.collectHN();
         
         for (EntryRegistryListener listener : listeners) {
@@ -139,6 +169,11 @@ public class EntryRegistryImpl implements EntryRegistry {
         }
     }
     
+    /**
+     * The number of buffered entries that are committed at once, which keeps the buffer bounded
+     * while still hashing large batches in parallel.
+     */
+    private static final int PENDING_FLUSH_THRESHOLD = 8192;
     private static final Comparator<ItemStack> STACK_COMPARATOR = (a, b) -> ItemStack.matches(a, b) ? 0 : 1;
     
     @Override
@@ -155,13 +190,24 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public boolean alreadyContain(EntryStack<?> stack) {
-        return entriesHash.contains(EntryStacks.hashExact(stack));
+        flushOwnPending();
+        return registryList.containsHash(EntryStacks.hashExact(stack));
     }
     
     @Override
     public void addEntryAfter(@Nullable EntryStack<?> afterEntry, EntryStack<?> stack) {
+        if (reloading && afterEntry == null) {
+            this.pendingOwner = Thread.currentThread();
+            pendingStacks.add(stack);
+            if (pendingStacks.size() >= PENDING_FLUSH_THRESHOLD) flushPending();
+            return;
+        }
+        
+        flushPending();
         long hashExact = EntryStacks.hashExact(stack);
-        if (this.entriesHash.add(hashExact)) {
+        if (collisionTracker != null) collisionTracker.track(stack, hashExact);
+        if (!registryList.containsHash(hashExact)) {
+            HashCachingEntryStack.cacheHashes(stack);
             if (afterEntry != null) {
                 int index = registryList.lastIndexOf(afterEntry);
                 registryList.add(index, stack, hashExact);
@@ -175,20 +221,69 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public void addEntriesAfter(@Nullable EntryStack<?> afterEntry, Collection<? extends EntryStack<?>> stacks) {
-        List<EntryStack<?>> filtered;
-        LongList hashes = registryList.needsHash() ? new LongArrayList(stacks.size()) : null;
+        if (reloading && afterEntry == null) {
+            this.pendingOwner = Thread.currentThread();
+            pendingStacks.addAll(stacks);
+            if (pendingStacks.size() >= PENDING_FLUSH_THRESHOLD) flushPending();
+            return;
+        }
         
-        if (registryList.needsHash()) {
-            filtered = new ArrayList<>(stacks.size());
-            for (EntryStack<?> stack : stacks) {
-                long hashExact = EntryStacks.hashExact(stack);
-                if (entriesHash.add(hashExact)) {
-                    filtered.add(stack);
-                    hashes.add(hashExact);
-                }
+        flushPending();
+        List<? extends EntryStack<?>> list = stacks instanceof List ? (List<? extends EntryStack<?>>) stacks : new ArrayList<>(stacks);
+        long[] hashes = new long[list.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = EntryStacks.hashExact(list.get(i));
+        }
+        addHashedEntriesAfter(afterEntry, list, hashes);
+    }
+    
+    /**
+     * Commits the pending entries if they were buffered by the calling thread, for the read paths.
+     */
+    private void flushOwnPending() {
+        if (pendingOwner == Thread.currentThread()) {
+            flushPending();
+        }
+    }
+    
+    /**
+     * Commits the entries buffered by {@link #addEntriesAfter} during reload, hashing them
+     * in parallel on the compute executor and caching their exact and fuzzy hashes on the stacks.
+     * Deduplication and insertion stay sequential so the registry order matches the order the plugins
+     * registered the entries in. Only called from the reloading thread, and the mutating paths.
+     */
+    private void flushPending() {
+        if (pendingStacks.isEmpty()) return;
+        List<EntryStack<?>> stacks = pendingStacks;
+        this.pendingStacks = new ArrayList<>();
+        this.pendingOwner = null;
+        long[] hashes = new long[stacks.size()];
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ComputeExecutor.forRange(hashes.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                EntryStack<?> stack = stacks.get(i);
+                HashCachingEntryStack.cacheHashes(stack);
+                hashes[i] = EntryStacks.hashExact(stack);
+            }
+        });
+        InternalLogger.getInstance().debug("Hashed %d entries in %s", hashes.length, stopwatch.stop());
+        addHashedEntriesAfter(null, stacks, hashes);
+        registryList.prepare();
+    }
+    
+    private void addHashedEntriesAfter(@Nullable EntryStack<?> afterEntry, List<? extends EntryStack<?>> stacks, long[] stackHashes) {
+        List<EntryStack<?>> filtered = new ArrayList<>(stacks.size());
+        LongList hashes = new LongArrayList(stacks.size());
+        LongSet addedHashes = new LongOpenHashSet(stacks.size());
+        
+        for (int i = 0; i < stackHashes.length; i++) {
+            long hashExact = stackHashes[i];
+            if (collisionTracker != null) collisionTracker.track(stacks.get(i), hashExact);
+            if (!registryList.containsHash(hashExact) && addedHashes.add(hashExact)) {
+                HashCachingEntryStack.cacheHashes(stacks.get(i));
+                filtered.add(stacks.get(i));
+                hashes.add(hashExact);
             }
-        } else {
-            filtered = CollectionUtils.filterToList((List<EntryStack<?>>) stacks, entry -> entriesHash.add(EntryStacks.hashExact(entry)));
         }
         
         if (afterEntry != null) {
@@ -207,9 +302,9 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public boolean removeEntry(EntryStack<?> stack) {
+        flushPending();
         long hashExact = EntryStacks.hashExact(stack);
-        registryList.remove(stack, hashExact);
-        boolean removed = entriesHash.remove(hashExact);
+        boolean removed = registryList.remove(stack, hashExact);
         
         if (removed) {
             for (EntryRegistryListener listener : listeners) {
@@ -222,14 +317,14 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public boolean removeEntryIf(Predicate<? extends EntryStack<?>> predicate) {
+        flushPending();
         List<EntryStack<?>> removedStacks = new ArrayList<>();
-        LongList hashes = registryList.needsHash() ? new LongArrayList() : null;
+        LongList hashes = new LongArrayList();
         
         boolean removed = registryList.removeExactIf((stack, hashExact) -> {
             if (((Predicate<EntryStack<?>>) predicate).test(stack)) {
-                entriesHash.remove(hashExact);
                 removedStacks.add(stack);
-                if (hashes != null) hashes.add(hashExact);
+                hashes.add(hashExact);
                 return true;
             }
             
@@ -247,9 +342,9 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public boolean removeEntryExactHashIf(LongPredicate predicate) {
+        flushPending();
         EntryRegistryList.StackFilteringPredicate entryStackPredicate = (stack, hash) -> {
             if (predicate.test(hash)) {
-                entriesHash.remove(hash);
                 for (EntryRegistryListener listener : listeners) {
                     listener.removeEntry(stack, hash);
                 }
@@ -264,9 +359,9 @@ public class EntryRegistryImpl implements EntryRegistry {
     
     @Override
     public boolean removeEntryFuzzyHashIf(LongPredicate predicate) {
+        flushPending();
         EntryRegistryList.StackFilteringPredicate entryStackPredicate = (stack, hashExact) -> {
             if (predicate.test(EntryStacks.hashFuzzy(stack))) {
-                entriesHash.remove(hashExact);
                 for (EntryRegistryListener listener : listeners) {
                     listener.removeEntry(stack, hashExact);
                 }
@@ -39,10 +39,24 @@ public interface EntryRegistryList {
     
     List<HNEntryStackWrapper> collectHN();
     
+    /**
+     * Returns the exact hashes of the entries, in the same order as {@link #collect()}.
+     *
+     * @return the exact hashes of the entries
+     */
+    LongList collectHashes();
+    
     int indexOf(EntryStack<?> stack);
     
     int lastIndexOf(EntryStack<?> stack);
     
+    /**
+     * Adds the entry to the end of the list, entries are unique by their exact hash, adding an entry with
+     * a hash that is already in the list does nothing.
+     *
+     * @param stack     the entry
+     * @param hashExact the exact hash of the entry
+     */
     void add(EntryStack<?> stack, long hashExact);
     
     void add(int index, EntryStack<?> stack, long hashExact);
@@ -51,10 +65,50 @@ public interface EntryRegistryList {
     
     void addAll(int index, List<EntryStack<?>> stacks, LongList hashes);
     
-    void remove(EntryStack<?> stack, long hashExact);
+    boolean remove(EntryStack<?> stack, long hashExact);
     
     boolean removeExactIf(StackFilteringPredicate predicate);
     
+    void clear();
+    
+    boolean containsHash(long hashExact);
+    
+    /**
+     * Returns the ordinal of the entry at the index, ordinals are stable until the list is cleared or compacted.
+     *
+     * @param index the index of the entry
+     * @return the ordinal of the entry
+     */
+    int ordinalAt(int index);
+    
+    /**
+     * Returns the current index of the entry with the ordinal.
+     *
+     * @param ordinal the ordinal of the entry
+     * @return the index of the entry, or {@code -1} if the entry has been removed
+     */
+    int indexOfOrdinal(int ordinal);
+    
+    EntryStack<?> stackOf(int ordinal);
+    
+    long exactHashOf(int ordinal);
+    
+    long fuzzyHashOf(int ordinal);
+    
+    /**
+     * Returns a wrapper of the entry with the ordinal, wrappers are not retained by the list,
+     * but share the normalized form of the entry.
+     *
+     * @param ordinal the ordinal of the entry
+     * @return the wrapper of the entry
+     */
+    HNEntryStackWrapper wrapperOf(int ordinal);
+    
+    /**
+     * Computes the fuzzy hashes and normalized forms of the entries added since the last call, in parallel.
+     */
+    void prepare();
+    
     boolean needsHash();
     
     interface StackFilteringPredicate {
@@ -23,32 +23,68 @@
 
 package me.shedaniel.rei.impl.common.entry.type;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.AbstractLongList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongList;
 import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.common.util.HNEntryStackWrapper;
 import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
 import net.minecraft.core.registries.BuiltInRegistries;
 
 import java.util.AbstractList;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Column store of the registered entries. Every entry is assigned an ordinal when added, the columns are indexed
+ * by ordinal, while the list order is kept as a list of ordinals, so inserting entries in the middle of the list
+ * only shifts integers. The index of every ordinal is kept up to date on mutation, so lookups never scan the list.
+ * Ordinals of removed entries are reclaimed once they make up most of the columns, which reassigns the ordinals.
+ */
 public class EntryRegistryListImpl implements EntryRegistryList {
-    private final List<HNEntryStackWrapper> hashedList = new ArrayList<>(BuiltInRegistries.ITEM.keySet().size() + 100);
-    private final List<EntryStack<?>> list = createMappedList(hashedList);
+    private static final int MIN_RELEASED_TO_COMPACT = 256;
+    private static final Object ALREADY_NORMALIZED = new Object();
+    private EntryStack<?>[] stacks;
+    private long[] exactHashes;
+    private long[] fuzzyHashes;
+    /**
+     * The normalized wrappers, computed on first use, or {@link #ALREADY_NORMALIZED} if the entry is already normalized.
+     */
+    private Object[] normalized;
+    private int[] indexByOrdinal;
+    private int nextOrdinal;
+    private int releasedOrdinals;
+    private volatile int fuzzyHashedOrdinals;
+    private int preparedOrdinals;
+    private final IntArrayList order;
+    private final Long2IntMap ordinalByHash;
+    private final List<HNEntryStackWrapper> hashedList = new HashedListView();
+    private final List<EntryStack<?>> list = new StackListView();
+    private final LongList hashList = new HashListView();
     
     public EntryRegistryListImpl() {
+        this(BuiltInRegistries.ITEM.keySet().size() + 100);
     }
     
-    public EntryRegistryListImpl(Stream<EntryStack<?>> list) {
-        list.collect(Collectors.toCollection(() -> this.list));
+    EntryRegistryListImpl(int capacity) {
+        this.stacks = new EntryStack<?>[capacity];
+        this.exactHashes = new long[capacity];
+        this.fuzzyHashes = new long[capacity];
+        this.normalized = new Object[capacity];
+        this.indexByOrdinal = new int[capacity];
+        this.order = new IntArrayList(capacity);
+        this.ordinalByHash = new Long2IntOpenHashMap(capacity);
+        this.ordinalByHash.defaultReturnValue(-1);
     }
     
     @Override
     public int size() {
-        return list.size();
+        return order.size();
     }
     
     @Override
@@ -66,64 +102,256 @@ public class EntryRegistryListImpl implements EntryRegistryList {
         return hashedList;
     }
     
+    @Override
+    public LongList collectHashes() {
+        return hashList;
+    }
+    
     @Override
     public int indexOf(EntryStack<?> stack) {
-        return list.indexOf(stack);
+        int ordinal = ordinalByHash.get(EntryStacks.hashExact(stack));
+        return ordinal == -1 ? -1 : indexByOrdinal[ordinal];
     }
     
     @Override
     public int lastIndexOf(EntryStack<?> stack) {
-        return list.lastIndexOf(stack);
+        // Entries are unique by their exact hash
+        return indexOf(stack);
     }
     
     @Override
-    public void add(EntryStack<?> stack, long hashExact) {
-        hashedList.add(new HNEntryStackWrapper(stack, hashExact));
+    public boolean containsHash(long hashExact) {
+        return ordinalByHash.containsKey(hashExact);
     }
     
     @Override
-    public void add(int index, EntryStack<?> stack, long hashExact) {
-        hashedList.add(index, new HNEntryStackWrapper(stack, hashExact));
+    public int ordinalAt(int index) {
+        return order.getInt(index);
     }
     
     @Override
-    public void addAll(List<EntryStack<?>> stacks, LongList hashes) {
-        hashedList.addAll(new AbstractList<>() {
-            @Override
-            public HNEntryStackWrapper get(int index) {
-                return new HNEntryStackWrapper(stacks.get(index), hashes.getLong(index));
+    public int indexOfOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < nextOrdinal ? indexByOrdinal[ordinal] : -1;
+    }
+    
+    @Override
+    public EntryStack<?> stackOf(int ordinal) {
+        return stacks[ordinal];
+    }
+    
+    @Override
+    public long exactHashOf(int ordinal) {
+        return exactHashes[ordinal];
+    }
+    
+    @Override
+    public long fuzzyHashOf(int ordinal) {
+        if (ordinal >= fuzzyHashedOrdinals) {
+            computeFuzzyHashes();
+        }
+        return fuzzyHashes[ordinal];
+    }
+    
+    @Override
+    public HNEntryStackWrapper wrapperOf(int ordinal) {
+        return new OrdinalWrapper(ordinal);
+    }
+    
+    private synchronized void computeFuzzyHashes() {
+        int start = fuzzyHashedOrdinals, end = nextOrdinal;
+        if (start >= end) return;
+        EntryStack<?>[] stacks = this.stacks;
+        long[] fuzzyHashes = this.fuzzyHashes;
+        ComputeExecutor.forRange(end - start, (from, to) -> {
+            for (int ordinal = start + from; ordinal < start + to; ordinal++) {
+                EntryStack<?> stack = stacks[ordinal];
+                if (stack != null) {
+                    fuzzyHashes[ordinal] = EntryStacks.hashFuzzy(stack);
+                }
             }
-            
-            @Override
-            public int size() {
-                return stacks.size();
+        });
+        fuzzyHashedOrdinals = end;
+    }
+    
+    @Override
+    public void prepare() {
+        computeFuzzyHashes();
+        int start = preparedOrdinals, end = nextOrdinal;
+        ComputeExecutor.forRange(end - start, (from, to) -> {
+            for (int ordinal = start + from; ordinal < start + to; ordinal++) {
+                if (stacks[ordinal] != null) {
+                    computeNormalized(ordinal);
+                }
             }
         });
+        preparedOrdinals = end;
+    }
+    
+    private Object computeNormalized(int ordinal) {
+        Object normalized = this.normalized[ordinal];
+        if (normalized == null) {
+            HashedEntryStackWrapper computed = new HashedEntryStackWrapper(stacks[ordinal], exactHashes[ordinal]).normalize();
+            normalized = computed.unwrap() == stacks[ordinal] ? ALREADY_NORMALIZED : computed;
+            this.normalized[ordinal] = normalized;
+        }
+        return normalized;
+    }
+    
+    /**
+     * Allocates an ordinal for the entry, without placing it in the list order.
+     *
+     * @return the ordinal, or {@code -1} if an entry with the hash is already in the list
+     */
+    private int allocate(EntryStack<?> stack, long hashExact) {
+        int ordinal = nextOrdinal;
+        if (ordinalByHash.putIfAbsent(hashExact, ordinal) != -1) return -1;
+        nextOrdinal++;
+        if (ordinal >= stacks.length) {
+            int capacity = Math.max(16, stacks.length + (stacks.length >> 1));
+            this.stacks = Arrays.copyOf(stacks, capacity);
+            this.exactHashes = Arrays.copyOf(exactHashes, capacity);
+            this.fuzzyHashes = Arrays.copyOf(fuzzyHashes, capacity);
+            this.normalized = Arrays.copyOf(normalized, capacity);
+            this.indexByOrdinal = Arrays.copyOf(indexByOrdinal, capacity);
+        }
+        stacks[ordinal] = stack;
+        exactHashes[ordinal] = hashExact;
+        return ordinal;
+    }
+    
+    /**
+     * Updates the indices of the ordinals from the index to the end of the list.
+     */
+    private void reindexFrom(int index) {
+        int[] elements = order.elements();
+        for (int i = index, size = order.size(); i < size; i++) {
+            indexByOrdinal[elements[i]] = i;
+        }
+    }
+    
+    @Override
+    public void add(EntryStack<?> stack, long hashExact) {
+        int ordinal = allocate(stack, hashExact);
+        if (ordinal == -1) return;
+        indexByOrdinal[ordinal] = order.size();
+        order.add(ordinal);
+    }
+    
+    @Override
+    public void add(int index, EntryStack<?> stack, long hashExact) {
+        int ordinal = allocate(stack, hashExact);
+        if (ordinal == -1) return;
+        order.add(index, ordinal);
+        reindexFrom(index);
+    }
+    
+    @Override
+    public void addAll(List<EntryStack<?>> stacks, LongList hashes) {
+        addAll(order.size(), stacks, hashes);
     }
     
     @Override
     public void addAll(int index, List<EntryStack<?>> stacks, LongList hashes) {
-        hashedList.addAll(index, new AbstractList<>() {
-            @Override
-            public HNEntryStackWrapper get(int index) {
-                return new HNEntryStackWrapper(stacks.get(index), hashes.getLong(index));
-            }
-            
-            @Override
-            public int size() {
-                return stacks.size();
+        int[] ordinals = new int[stacks.size()];
+        int count = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            int ordinal = allocate(stacks.get(i), hashes.getLong(i));
+            if (ordinal != -1) {
+                ordinals[count++] = ordinal;
             }
-        });
+        }
+        order.addElements(index, ordinals, 0, count);
+        reindexFrom(index);
     }
     
     @Override
-    public void remove(EntryStack<?> stack, long hashExact) {
-        hashedList.remove(new HashedEntryStackWrapper(stack, hashExact));
+    public boolean remove(EntryStack<?> stack, long hashExact) {
+        int ordinal = ordinalByHash.remove(hashExact);
+        if (ordinal == -1) return false;
+        int index = indexByOrdinal[ordinal];
+        order.removeInt(index);
+        release(ordinal);
+        if (!compactIfSparse()) {
+            reindexFrom(index);
+        }
+        return true;
     }
     
     @Override
     public boolean removeExactIf(StackFilteringPredicate predicate) {
-        return hashedList.removeIf(stack -> predicate.test(stack.unwrap(), stack.hashExact()));
+        int size = order.size();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int ordinal = order.getInt(i);
+            if (predicate.test(stacks[ordinal], exactHashes[ordinal])) {
+                ordinalByHash.remove(exactHashes[ordinal]);
+                release(ordinal);
+            } else {
+                indexByOrdinal[ordinal] = kept;
+                order.set(kept++, ordinal);
+            }
+        }
+        if (kept == size) return false;
+        order.size(kept);
+        compactIfSparse();
+        return true;
+    }
+    
+    private void release(int ordinal) {
+        stacks[ordinal] = null;
+        normalized[ordinal] = null;
+        indexByOrdinal[ordinal] = -1;
+        releasedOrdinals++;
+    }
+    
+    /**
+     * Moves the remaining entries to the front of the columns once most ordinals belong to removed entries,
+     * the entries are reassigned the ordinals in list order.
+     *
+     * @return whether the columns were compacted
+     */
+    private boolean compactIfSparse() {
+        if (releasedOrdinals < MIN_RELEASED_TO_COMPACT || releasedOrdinals < nextOrdinal / 2) return false;
+        int size = order.size();
+        int capacity = Math.max(16, size + (size >> 1));
+        EntryStack<?>[] stacks = new EntryStack<?>[capacity];
+        long[] exactHashes = new long[capacity];
+        long[] fuzzyHashes = new long[capacity];
+        Object[] normalized = new Object[capacity];
+        int[] indexByOrdinal = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int ordinal = order.getInt(i);
+            stacks[i] = this.stacks[ordinal];
+            exactHashes[i] = this.exactHashes[ordinal];
+            fuzzyHashes[i] = this.fuzzyHashes[ordinal];
+            normalized[i] = this.normalized[ordinal];
+            indexByOrdinal[i] = i;
+            order.set(i, i);
+            ordinalByHash.put(exactHashes[i], i);
+        }
+        this.stacks = stacks;
+        this.exactHashes = exactHashes;
+        this.fuzzyHashes = fuzzyHashes;
+        this.normalized = normalized;
+        this.indexByOrdinal = indexByOrdinal;
+        this.nextOrdinal = size;
+        this.releasedOrdinals = 0;
+        // Fuzzy hashes and normalized forms are cached per entry, so redoing them for the moved entries is cheap
+        this.fuzzyHashedOrdinals = 0;
+        this.preparedOrdinals = 0;
+        return true;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(stacks, 0, nextOrdinal, null);
+        Arrays.fill(normalized, 0, nextOrdinal, null);
+        nextOrdinal = 0;
+        releasedOrdinals = 0;
+        fuzzyHashedOrdinals = 0;
+        preparedOrdinals = 0;
+        order.clear();
+        ordinalByHash.clear();
     }
     
     @Override
@@ -135,73 +363,80 @@ public class EntryRegistryListImpl implements EntryRegistryList {
         return list;
     }
     
-    private static List<EntryStack<?>> createMappedList(List<HNEntryStackWrapper> hashedList) {
-        return new AbstractList<>() {
-            @Override
-            public EntryStack<?> get(int index) {
-                return hashedList.get(index).unwrap();
-            }
-            
-            @Override
-            public int size() {
-                return hashedList.size();
-            }
-            
-            @Override
-            public void add(int index, EntryStack<?> element) {
-                hashedList.add(index, new HNEntryStackWrapper(element));
-            }
-            
-            @Override
-            public EntryStack<?> set(int index, EntryStack<?> element) {
-                return hashedList.set(index, new HNEntryStackWrapper(element)).unwrap();
-            }
-            
-            @Override
-            public boolean remove(Object o) {
-                if (o instanceof EntryStack) {
-                    return hashedList.remove(new HashedEntryStackWrapper((EntryStack<?>) o));
-                } else {
-                    return false;
-                }
-            }
-            
-            @Override
-            public EntryStack<?> remove(int index) {
-                return hashedList.remove(index).unwrap();
-            }
-            
-            @Override
-            public void clear() {
-                hashedList.clear();
-            }
-            
-            @Override
-            public int indexOf(Object o) {
-                if (o instanceof EntryStack<?> stack) {
-                    return hashedList.indexOf(new HashedEntryStackWrapper(stack));
-                } else {
-                    return -1;
-                }
+    /**
+     * Wrapper of an entry that reads its normalized form from the columns, wrappers of entries moved
+     * by a compaction fall back to normalizing themselves.
+     */
+    private class OrdinalWrapper extends HNEntryStackWrapper {
+        private final int ordinal;
+        
+        private OrdinalWrapper(int ordinal) {
+            super(stacks[ordinal], exactHashes[ordinal]);
+            this.ordinal = ordinal;
+        }
+        
+        @Override
+        public HashedEntryStackWrapper normalize() {
+            if (ordinal >= nextOrdinal || stacks[ordinal] != unwrap()) {
+                return super.normalize();
             }
-            
-            @Override
-            public int lastIndexOf(Object o) {
-                if (o instanceof EntryStack<?> stack) {
-                    return hashedList.lastIndexOf(new HashedEntryStackWrapper(stack));
-                } else {
-                    return -1;
-                }
-            }
-            
-            @Override
-            public boolean contains(Object o) {
-                if (o instanceof EntryStack<?> stack) {
-                    return hashedList.contains(new HashedEntryStackWrapper(stack));
-                } else {
-                    return false;
-                }
+            Object normalized = computeNormalized(ordinal);
+            return normalized == ALREADY_NORMALIZED ? this : (HashedEntryStackWrapper) normalized;
+        }
+    }
+    
+    private class HashedListView extends AbstractList<HNEntryStackWrapper> {
+        @Override
+        public HNEntryStackWrapper get(int index) {
+            return new OrdinalWrapper(order.getInt(index));
+        }
+        
+        @Override
+        public int size() {
+            return order.size();
+        }
+    }
+    
+    private class HashListView extends AbstractLongList {
+        @Override
+        public long getLong(int index) {
+            return exactHashes[order.getInt(index)];
+        }
+        
+        @Override
+        public int size() {
+            return order.size();
+        }
+    }
+    
+    private class StackListView extends AbstractList<EntryStack<?>> {
+        @Override
+        public EntryStack<?> get(int index) {
+            return stacks[order.getInt(index)];
+        }
+        
+        @Override
+        public int size() {
+            return order.size();
+        }
+        
+        @Override
+        public int indexOf(Object o) {
+            if (o instanceof EntryStack<?> stack) {
+                return EntryRegistryListImpl.this.indexOf(stack);
+            } else {
+                return -1;
             }
-        };
+        }
+        
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+        
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof EntryStack<?> stack && containsHash(EntryStacks.hashExact(stack));
+        }
     }
 }
@@ -94,6 +94,14 @@ public class EntryTypeRegistryImpl implements EntryTypeRegistry {
         return (Iterable<EntryTypeBridge<A, B>>) list;
     }
     
+    /**
+     * Returns whether stacks of the type may equal stacks of another type, through a bridge in either direction.
+     */
+    public boolean hasBridges(EntryType<?> type) {
+        ResourceLocation id = type.getId();
+        return typeBridges.containsRow(id) || typeBridges.containsColumn(id);
+    }
+    
     @Override
     public void startReload() {
         entryTypes.clear();
@@ -24,24 +24,25 @@
 package me.shedaniel.rei.impl.common.entry.type;
 
 import com.google.common.base.Stopwatch;
+import it.unimi.dsi.fastutil.longs.*;
 import me.shedaniel.rei.api.client.config.ConfigManager;
 import me.shedaniel.rei.api.client.config.ConfigObject;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringRule;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringRuleType;
 import me.shedaniel.rei.api.client.entry.filtering.FilteringRuleTypeRegistry;
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextType;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringResultImpl;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.common.InternalLogger;
-import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 @ApiStatus.Internal
 public class FilteringLogic {
@@ -83,27 +84,124 @@ public class FilteringLogic {
     }
     
     public static Collection<EntryStack<?>> filter(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries) {
-        Set<HashedEntryStackWrapper> hiddenStacks = hidden(rules, log, async, entries).get(FilteringContextType.HIDDEN);
+        return filter(rules, log, async, entries, null);
+    }
+    
+    public static Collection<EntryStack<?>> filter(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries, @Nullable LongCollection hashes) {
+        if (hashes == null) {
+            hashes = FilteringContextImpl.hashAll(entries.size() > 100 && async, entries);
+        }
+        Long2ObjectMap<EntryStack<?>> hiddenStacks = hidden(rules, log, async, entries, hashes).get(FilteringContextType.HIDDEN);
         if (hiddenStacks.isEmpty()) {
             return entries;
-        } else if (async) {
-            return entries.parallelStream()
-                    .filter(stack -> !hiddenStacks.contains(new HashedEntryStackWrapper(stack)))
-                    .collect(Collectors.toList());
-        } else {
-            return CollectionUtils.filterToList(entries, stack -> !hiddenStacks.contains(new HashedEntryStackWrapper(stack)));
         }
+        List<EntryStack<?>> filtered = new ArrayList<>(Math.max(0, entries.size() - hiddenStacks.size()));
+        Iterator<EntryStack<?>> stackIterator = entries.iterator();
+        LongIterator hashIterator = hashes.iterator();
+        while (stackIterator.hasNext()) {
+            EntryStack<?> stack = stackIterator.next();
+            if (!hiddenStacks.containsKey(hashIterator.nextLong())) {
+                filtered.add(stack);
+            }
+        }
+        return filtered;
+    }
+    
+    public static Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> hidden(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries) {
+        return hidden(rules, log, async, entries, null);
     }
     
-    public static Map<FilteringContextType, Set<HashedEntryStackWrapper>> hidden(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries) {
+    public static Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> hidden(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries, @Nullable LongCollection hashes) {
         async = entries.size() > 100 && async;
-        FilteringContextImpl context = new FilteringContextImpl(async, entries);
+        FilteringContextImpl context = new FilteringContextImpl(async, entries, hashes);
         LinkedHashMap<FilteringRule<?>, Object> cache = prepareCache(rules, async, entries);
         filter0(log, context, cache, entries);
         
         return context.stacks;
     }
     
+    /**
+     * Evaluates each rule independently against the same entries, as if each rule
+     * was the only rule present. Caches are prepared sequentially in priority order
+     * on the calling thread, while the rules themselves are evaluated concurrently
+     * on the compute executor when parallel filtering is enabled. Every rule reads
+     * the same snapshot of the entries, which is never modified.
+     * <p>
+     * A rule that fails on the compute executor is evaluated again on the calling thread.
+     * Rules that still fail, or do not finish in time, are interrupted and left out of the
+     * results, callers should keep their previous results.
+     *
+     * @return the hidden and shown stacks of each rule that completed
+     */
+    public static Map<FilteringRule<?>, Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>> hiddenEach(List<FilteringRule<?>> rules, boolean log, boolean async, Collection<EntryStack<?>> entries, @Nullable LongCollection hashes) {
+        async = entries.size() > 100 && async;
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        FilteringContextImpl snapshot = new FilteringContextImpl(async, entries, hashes);
+        LinkedHashMap<FilteringRule<?>, Object> cache = new LinkedHashMap<>();
+        for (FilteringRule<?> rule : rules) {
+            cache.put(rule, rule.prepareCache(async));
+        }
+        Map<FilteringRule<?>, Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>> results = new HashMap<>();
+        
+        if (async && rules.size() > 1 && ((ConfigObjectImpl) ConfigObject.getInstance()).isFilteringRulesParallel()) {
+            Map<FilteringRule<?>, Future<Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>>> futures = new LinkedHashMap<>();
+            for (Map.Entry<FilteringRule<?>, Object> entry : cache.entrySet()) {
+                futures.put(entry.getKey(), ComputeExecutor.get().submit(() -> filterSingle(log, snapshot, entry.getKey(), entry.getValue())));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+            for (Map.Entry<FilteringRule<?>, Future<Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>>> entry : futures.entrySet()) {
+                FilteringRule<?> rule = entry.getKey();
+                Future<Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>> future = entry.getValue();
+                try {
+                    results.put(rule, future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    InternalLogger.getInstance().error("Filtering rule [%s] did not finish in time, keeping its previous results", rule.getType());
+                } catch (InterruptedException e) {
+                    future.cancel(true);
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    InternalLogger.getInstance().error(String.format("Failed to filter with rule [%s] in parallel, filtering sequentially", rule.getType()), e.getCause());
+                    try {
+                        results.put(rule, filterSingle(log, snapshot, rule, cache.get(rule)));
+                    } catch (Throwable throwable) {
+                        InternalLogger.getInstance().error(String.format("Failed to filter with rule [%s], keeping its previous results", rule.getType()), throwable);
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<FilteringRule<?>, Object> entry : cache.entrySet()) {
+                results.put(entry.getKey(), filterSingle(log, snapshot, entry.getKey(), entry.getValue()));
+            }
+        }
+        
+        if (log) {
+            InternalLogger.getInstance().debug("Refiltered %d rules independently in %s.", rules.size(), stopwatch.stop().toString());
+        }
+        return results;
+    }
+    
+    /**
+     * Evaluates a single rule against the snapshot without modifying it. As in {@link FilteringContextImpl#handleResult(FilteringResultImpl)},
+     * stacks both hidden and shown by the rule are shown.
+     */
+    private static Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> filterSingle(boolean log, FilteringContextImpl snapshot, FilteringRule<?> rule, Object cache) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        FilteringResultImpl result = (FilteringResultImpl) ((FilteringRule<Object>) rule).processFilteredStacks(snapshot,
+                snapshot::createResult, cache, true);
+        Long2ObjectMap<EntryStack<?>> hidden = result.hiddenStacks;
+        if (!hidden.isEmpty() && !result.shownStacks.isEmpty()) {
+            hidden.keySet().removeAll(result.shownStacks.keySet());
+        }
+        Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> stacks = new EnumMap<>(FilteringContextType.class);
+        stacks.put(FilteringContextType.HIDDEN, hidden);
+        stacks.put(FilteringContextType.SHOWN, result.shownStacks);
+        if (log) {
+            InternalLogger.getInstance().debug("Refiltered rule [%s] in %s.", rule.getType().toString(), stopwatch.stop().toString());
+        }
+        return stacks;
+    }
+    
     private static void filter0(boolean log, FilteringContextImpl context, LinkedHashMap<FilteringRule<?>, Object> cache, Collection<EntryStack<?>> entries) {
         Stopwatch stopwatch = Stopwatch.createStarted();
         for (Map.Entry<FilteringRule<?>, Object> entry : cache.entrySet()) {
@@ -111,7 +209,7 @@ public class FilteringLogic {
             FilteringRule<?> rule = entry.getKey();
             Object cacheObject = entry.getValue();
             context.handleResult((FilteringResultImpl) ((FilteringRule<Object>) rule).processFilteredStacks(context,
-                    () -> new FilteringResultImpl(new ArrayList<>(), new ArrayList<>()),
+                    context::createResult,
                     cache.get(rule), true));
             if (log) {
                 InternalLogger.getInstance().debug("Refiltered rule [%s] in %s.", rule.getType().toString(), stopwatch.stop().toString());
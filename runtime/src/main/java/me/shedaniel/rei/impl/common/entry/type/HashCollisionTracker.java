@@ -0,0 +1,75 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.common.entry.type;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.common.InternalLogger;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Objects;
+
+/**
+ * Counts exact hash collisions between distinct entries, which would otherwise silently deduplicate
+ * one of them from the registry. Only used when hash collisions are debugged.
+ */
+final class HashCollisionTracker {
+    private static final int MAX_LOGGED = 20;
+    private final Long2ObjectMap<EntryStack<?>> stacks = new Long2ObjectOpenHashMap<>();
+    private final Object2IntMap<ResourceLocation> collisionsByType = new Object2IntOpenHashMap<>();
+    private int collisions;
+    
+    void track(EntryStack<?> stack, long hashExact) {
+        EntryStack<?> existing = stacks.putIfAbsent(hashExact, stack);
+        if (existing != null && existing != stack && !isSameEntry(existing, stack)) {
+            collisionsByType.mergeInt(stack.getType().getId(), 1, Integer::sum);
+            if (++collisions <= MAX_LOGGED) {
+                InternalLogger.getInstance().debug("Entry hash collision on %016x between %s and %s", hashExact, existing, stack);
+            }
+        }
+    }
+    
+    void report() {
+        if (collisions == 0) {
+            InternalLogger.getInstance().debug("Detected no entry hash collisions among %d entries", stacks.size());
+        } else {
+            InternalLogger.getInstance().warn("Detected %d entry hash collisions among %d entries: %s", collisions, stacks.size(), collisionsByType);
+        }
+    }
+    
+    /**
+     * Returns whether the stacks are the same entry, in which case sharing a hash is intended.
+     * This may still count stacks that a comparator deliberately treats as the same.
+     */
+    private static boolean isSameEntry(EntryStack<?> first, EntryStack<?> second) {
+        if (first.getType() != second.getType()) return false;
+        if (first.getValue() instanceof ItemStack firstStack && second.getValue() instanceof ItemStack secondStack) {
+            return ItemStack.isSameItemSameComponents(firstStack, secondStack);
+        }
+        return Objects.equals(first.getIdentifier(), second.getIdentifier());
+    }
+}
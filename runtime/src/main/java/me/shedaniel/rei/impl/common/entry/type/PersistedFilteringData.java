@@ -0,0 +1,258 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry.type;
+
+import com.google.common.hash.Hashing;
+import dev.architectury.platform.Mod;
+import dev.architectury.platform.Platform;
+import it.unimi.dsi.fastutil.longs.*;
+import me.shedaniel.rei.api.client.entry.filtering.FilteringRule;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.impl.client.entry.filtering.PersistableFilteringRule;
+import me.shedaniel.rei.impl.common.InternalLogger;
+import net.minecraft.Util;
+import net.minecraft.nbt.CompoundTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the results of {@link PersistableFilteringRule}s on disk, so they can be reused on the
+ * next launch when neither the rule nor the installed mods have changed. Results are stored with
+ * the set of entries they were evaluated against, entries outside that set are evaluated again.
+ * <p>
+ * Entry hashes are not stable across launches, entries are therefore stored by their stable keys,
+ * see {@link #stableKeyOf(EntryStack)}, and mapped to and from the entry hashes of the current launch.
+ */
+class PersistedFilteringData {
+    private static final int VERSION = 4;
+    private final LongSet evaluatedHashes;
+    private final Map<String, PreFilteredEntryList.DataPair> results;
+    
+    PersistedFilteringData(LongSet evaluatedHashes, Map<String, PreFilteredEntryList.DataPair> results) {
+        this.evaluatedHashes = evaluatedHashes;
+        this.results = results;
+    }
+    
+    private static Path getPath() {
+        return Platform.getConfigFolder().resolve("roughlyenoughitems/filtering_cache.bin");
+    }
+    
+    @Nullable
+    public static String getKey(FilteringRule<?> rule) {
+        if (!(rule instanceof PersistableFilteringRule persistable)) return null;
+        String key = persistable.getPersistenceKey();
+        return key == null ? null : rule.getType().getId() + "|" + key;
+    }
+    
+    /**
+     * Returns a key of the stack that is stable across launches, derived from the serialized stack,
+     * which refers to items and data components by their registry ids.
+     *
+     * @param stack the stack
+     * @return the stable key, or {@code 0} if the stack cannot be serialized, such stacks are never persisted
+     */
+    public static long stableKeyOf(EntryStack<?> stack) {
+        try {
+            if (!stack.supportSaving()) return 0L;
+            CompoundTag tag = stack.saveStack();
+            if (tag == null) return 0L;
+            long key = Hashing.murmur3_128().hashString(tag.getAsString(), StandardCharsets.UTF_8).asLong();
+            return key == 0L ? 1L : key;
+        } catch (Throwable throwable) {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Returns a SHA-256 digest of the installed mods and their versions.
+     */
+    private static byte[] getEnvironmentKey() {
+        StringBuilder builder = new StringBuilder();
+        for (Mod mod : Platform.getMods().stream().sorted(Comparator.comparing(Mod::getModId)).toList()) {
+            builder.append(mod.getModId()).append('@').append(mod.getVersion()).append(';');
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public LongSet getEvaluatedHashes() {
+        return evaluatedHashes;
+    }
+    
+    /**
+     * Returns whether the results of any of the rules have been persisted.
+     *
+     * @param keys the keys of the rules
+     */
+    public boolean containsAny(Collection<String> keys) {
+        for (String key : keys) {
+            if (results.containsKey(key)) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the persisted hidden and shown hashes of the rule.
+     *
+     * @param key the key of the rule
+     * @return the hidden and shown hashes, or {@code null} if the rule has not been persisted
+     */
+    @Nullable
+    public PreFilteredEntryList.DataPair get(String key) {
+        return results.get(key);
+    }
+    
+    /**
+     * Maps the hashes of this data with {@code mapping}, dropping hashes that are not mapped.
+     * This converts stable keys to the entry hashes of the current launch, and back.
+     *
+     * @param mapping the hashes to map from, to the hashes to map to
+     * @return the mapped data
+     */
+    public PersistedFilteringData remap(Long2LongMap mapping) {
+        Map<String, PreFilteredEntryList.DataPair> results = new HashMap<>(this.results.size());
+        this.results.forEach((key, pair) -> results.put(key, new PreFilteredEntryList.DataPair(remap(pair.hidden(), mapping), remap(pair.shown(), mapping))));
+        return new PersistedFilteringData(remap(this.evaluatedHashes, mapping), results);
+    }
+    
+    private static LongSet remap(LongSet hashes, Long2LongMap mapping) {
+        LongSet remapped = new LongOpenHashSet(hashes.size());
+        LongIterator iterator = hashes.iterator();
+        while (iterator.hasNext()) {
+            long hash = iterator.nextLong();
+            if (mapping.containsKey(hash)) {
+                remapped.add(mapping.get(hash));
+            }
+        }
+        return remapped;
+    }
+    
+    /**
+     * Reads the persisted data, keyed by stable keys.
+     */
+    @Nullable
+    public static PersistedFilteringData read() {
+        Path path = getPath();
+        if (!Files.exists(path)) return null;
+        try {
+            return read(path, getEnvironmentKey());
+        } catch (Throwable throwable) {
+            InternalLogger.getInstance().warn("Failed to read persisted filtering results", throwable);
+            return null;
+        }
+    }
+    
+    @Nullable
+    static PersistedFilteringData read(Path path, byte[] environmentKey) throws IOException {
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            if (stream.readInt() != VERSION) return null;
+            if (!Arrays.equals(readBytes(stream), environmentKey)) return null;
+            LongSet evaluatedHashes = readSet(stream);
+            int size = stream.readInt();
+            Map<String, PreFilteredEntryList.DataPair> results = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = stream.readUTF();
+                results.put(key, new PreFilteredEntryList.DataPair(readSet(stream), readSet(stream)));
+            }
+            return new PersistedFilteringData(evaluatedHashes, results);
+        }
+    }
+    
+    /**
+     * Writes the data off-thread, the data must not be modified afterwards.
+     *
+     * @param data the data to write, keyed by stable keys
+     */
+    public static void writeAsync(PersistedFilteringData data) {
+        Util.ioPool().execute(() -> {
+            try {
+                write(getPath(), getEnvironmentKey(), data);
+            } catch (Throwable throwable) {
+                InternalLogger.getInstance().warn("Failed to persist filtering results", throwable);
+            }
+        });
+    }
+    
+    static synchronized void write(Path path, byte[] environmentKey, PersistedFilteringData data) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmpPath))))) {
+            stream.writeInt(VERSION);
+            writeBytes(stream, environmentKey);
+            writeSet(stream, data.evaluatedHashes);
+            stream.writeInt(data.results.size());
+            for (Map.Entry<String, PreFilteredEntryList.DataPair> entry : data.results.entrySet()) {
+                stream.writeUTF(entry.getKey());
+                writeSet(stream, entry.getValue().hidden());
+                writeSet(stream, entry.getValue().shown());
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static byte[] readBytes(DataInputStream stream) throws IOException {
+        byte[] bytes = new byte[stream.readUnsignedShort()];
+        stream.readFully(bytes);
+        return bytes;
+    }
+    
+    private static void writeBytes(DataOutputStream stream, byte[] bytes) throws IOException {
+        stream.writeShort(bytes.length);
+        stream.write(bytes);
+    }
+    
+    private static LongSet readSet(DataInputStream stream) throws IOException {
+        int size = stream.readInt();
+        LongSet set = new LongOpenHashSet(size);
+        for (int i = 0; i < size; i++) {
+            set.add(stream.readLong());
+        }
+        return set;
+    }
+    
+    private static void writeSet(DataOutputStream stream, LongSet set) throws IOException {
+        stream.writeInt(set.size());
+        LongIterator iterator = set.iterator();
+        while (iterator.hasNext()) {
+            stream.writeLong(iterator.nextLong());
+        }
+    }
+}
@@ -37,10 +37,11 @@ import me.shedaniel.rei.api.client.registry.entry.EntryRegistry;
 import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.util.CollectionUtils;
 import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.client.config.ConfigObjectImpl;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextType;
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
 import me.shedaniel.rei.impl.common.InternalLogger;
 import me.shedaniel.rei.impl.common.util.HNEntryStackWrapper;
-import me.shedaniel.rei.impl.common.util.HashedEntryStackWrapper;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
@@ -53,6 +54,10 @@ public class PreFilteredEntryList implements FilteredEntryList {
     private final List<HNEntryStackWrapper> listView = new InternalListView();
     private final List<EntryStack<?>> simpleListView = new InternalSimpleListView(listView);
     private long mod = 0;
+    /**
+     * Whether a rule did not complete since this was last reset, its previous results were kept.
+     */
+    private boolean incompleteFiltering = false;
     
     public PreFilteredEntryList(EntryRegistry registry, EntryRegistryList list) {
         this.registry = registry;
@@ -98,18 +103,137 @@ public class PreFilteredEntryList implements FilteredEntryList {
         }
         
         Stopwatch stopwatch = Stopwatch.createStarted();
-        refreshFilteringFor(true, null, Lists.transform(stacks, HNEntryStackWrapper::unwrap), new AbstractLongList() {
-            @Override
-            public long getLong(int index) {
-                return stacks.get(index).hashExact();
+        // Read the registry columns directly instead of going through the wrappers
+        List<EntryStack<?>> unwrapped = list.collect();
+        LongList hashes = list.collectHashes();
+        List<FilteringRule<?>> rules = FilteringLogic.getRules();
+        Set<String> persistableKeys = new HashSet<>();
+        int persistableRules = 0;
+        if (((ConfigObjectImpl) config).isPersistingFilteringResults()) {
+            for (FilteringRule<?> rule : rules) {
+                String key = PersistedFilteringData.getKey(rule);
+                if (key != null) {
+                    persistableKeys.add(key);
+                    persistableRules++;
+                }
             }
-            
-            @Override
-            public int size() {
-                return stacks.size();
+        }
+        incompleteFiltering = false;
+        // Stable keys serialize every entry, they are only computed when persisted results are read or written
+        Long2LongMap exactToStable = null;
+        PersistedFilteringData persisted = persistableKeys.isEmpty() ? null : PersistedFilteringData.read();
+        if (persisted != null && persisted.containsAny(persistableKeys)) {
+            exactToStable = mapStableKeys(unwrapped, hashes);
+            persisted = persisted.remap(invert(exactToStable));
+        } else {
+            persisted = null;
+        }
+        Set<FilteringRule<?>> restoredRules = persisted == null ? Set.of() : restorePersistedFiltering(persisted, hashes);
+        boolean changed = restoredRules.size() < persistableRules;
+        if (restoredRules.isEmpty()) {
+            refreshFilteringFor(true, null, unwrapped, hashes);
+        } else {
+            Set<FilteringRule<?>> otherRules = new HashSet<>(rules);
+            otherRules.removeAll(restoredRules);
+            refreshFilteringFor(true, otherRules, unwrapped, hashes);
+            // Restored rules only need to evaluate entries that were not present when they were persisted
+            List<EntryStack<?>> newStacks = new ArrayList<>();
+            LongList newHashes = new LongArrayList();
+            LongSet evaluatedHashes = persisted.getEvaluatedHashes();
+            for (HNEntryStackWrapper stack : stacks) {
+                if (!evaluatedHashes.contains(stack.hashExact())) {
+                    newStacks.add(stack.unwrap());
+                    newHashes.add(stack.hashExact());
+                }
+            }
+            if (!newStacks.isEmpty()) {
+                refreshFilteringFor(true, restoredRules, newStacks, newHashes);
+                changed = true;
+            }
+            InternalLogger.getInstance().debug("Restored %d persisted filtering rules, evaluating %d new entries.", restoredRules.size(), newStacks.size());
+        }
+        if (incompleteFiltering) {
+            // The results of a rule that did not complete are not worth restoring on the next launch
+            InternalLogger.getInstance().warn("Not persisting filtering results, as some rules did not complete.");
+        } else if (!persistableKeys.isEmpty() && changed) {
+            if (exactToStable == null) {
+                exactToStable = mapStableKeys(unwrapped, hashes);
+            }
+            persistFiltering(exactToStable);
+        }
+        InternalLogger.getInstance().debug("Refiltered %d entries with %d rules in %s.", stacks.size(), rules.size(), stopwatch.stop().toString());
+    }
+    
+    private Set<FilteringRule<?>> restorePersistedFiltering(PersistedFilteringData data, LongList hashes) {
+        Set<FilteringRule<?>> restoredRules = new HashSet<>();
+        LongSet currentHashes = new LongOpenHashSet(hashes);
+        for (FilteringRule<?> rule : FilteringLogic.getRules()) {
+            String key = PersistedFilteringData.getKey(rule);
+            DataPair pair = key == null ? null : data.get(key);
+            if (pair != null) {
+                // Drop results of entries that are no longer registered
+                pair.hidden().retainAll(currentHashes);
+                pair.shown().retainAll(currentHashes);
+                if (filteringData.containsValue(pair)) {
+                    // Equal rules must not share their sets
+                    pair = new DataPair(new LongOpenHashSet(pair.hidden()), new LongOpenHashSet(pair.shown()));
+                }
+                filteringData.put(rule, pair);
+                restoredRules.add(rule);
+            }
+        }
+        return restoredRules;
+    }
+    
+    /**
+     * Maps the exact hashes of the stacks to their stable keys, leaving out stacks without a stable key
+     * and stacks sharing their stable key with another stack.
+     */
+    private static Long2LongMap mapStableKeys(List<EntryStack<?>> stacks, LongList hashes) {
+        long[] stableKeys = new long[stacks.size()];
+        ComputeExecutor.forRange(stableKeys.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                stableKeys[i] = PersistedFilteringData.stableKeyOf(stacks.get(i));
             }
         });
-        InternalLogger.getInstance().debug("Refiltered %d entries with %d rules in %s.", stacks.size(), FilteringLogic.getRules().size(), stopwatch.stop().toString());
+        Long2LongMap exactToStable = new Long2LongOpenHashMap(stableKeys.length);
+        Long2LongMap stableToExact = new Long2LongOpenHashMap(stableKeys.length);
+        LongSet conflicts = new LongOpenHashSet();
+        for (int i = 0; i < stableKeys.length; i++) {
+            long stableKey = stableKeys[i];
+            if (stableKey == 0L) continue;
+            long hash = hashes.getLong(i);
+            if (stableToExact.containsKey(stableKey) && stableToExact.get(stableKey) != hash) {
+                conflicts.add(stableKey);
+            } else {
+                stableToExact.put(stableKey, hash);
+                exactToStable.put(hash, stableKey);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            exactToStable.long2LongEntrySet().removeIf(entry -> conflicts.contains(entry.getLongValue()));
+        }
+        return exactToStable;
+    }
+    
+    private static Long2LongMap invert(Long2LongMap map) {
+        Long2LongMap inverted = new Long2LongOpenHashMap(map.size());
+        for (Long2LongMap.Entry entry : map.long2LongEntrySet()) {
+            inverted.put(entry.getLongValue(), entry.getLongKey());
+        }
+        return inverted;
+    }
+    
+    private void persistFiltering(Long2LongMap exactToStable) {
+        Map<String, DataPair> results = new HashMap<>();
+        for (Map.Entry<FilteringRule<?>, DataPair> entry : filteringData.entrySet()) {
+            String key = PersistedFilteringData.getKey(entry.getKey());
+            if (key != null) {
+                results.put(key, entry.getValue());
+            }
+        }
+        // Remapping copies the sets, so they can be written off-thread
+        PersistedFilteringData.writeAsync(new PersistedFilteringData(exactToStable.keySet(), results).remap(exactToStable));
     }
     
     private void queueSearchUpdate() {
@@ -139,6 +263,16 @@ public class PreFilteredEntryList implements FilteredEntryList {
         }
         
         List<FilteringRule<?>> rules = FilteringLogic.getRules();
+        List<FilteringRule<?>> refilteringRules = new ArrayList<>();
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            FilteringRule<?> rule = rules.get(i);
+            if (refilterRules == null || refilterRules.contains(rule)) {
+                refilteringRules.add(rule);
+            }
+        }
+        Map<FilteringRule<?>, Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>>> results = refilteringRules.isEmpty() ? Map.of()
+                : FilteringLogic.hiddenEach(refilteringRules, log, true, stacks, hashes);
+        
         for (int i = rules.size() - 1; i >= 0; i--) {
             FilteringRule<?> rule = rules.get(i);
             if (!filteringData.containsKey(rule)) filteringData.put(rule, new DataPair());
@@ -146,6 +280,11 @@ public class PreFilteredEntryList implements FilteredEntryList {
             LongSet hidden = longPair.hidden();
             LongSet shown = longPair.shown();
             boolean refilter = refilterRules == null || refilterRules.contains(rule);
+            if (refilter && !results.containsKey(rule)) {
+                // The rule did not complete, keep its previous results
+                incompleteFiltering = true;
+                refilter = false;
+            }
             if (refilter) {
                 if (!hidden.isEmpty()) {
                     hidden.removeAll(hashes);
@@ -155,18 +294,22 @@ public class PreFilteredEntryList implements FilteredEntryList {
                     shown.removeAll(hashes);
                     mod++;
                 }
-                Map<FilteringContextType, Set<HashedEntryStackWrapper>> map = FilteringLogic.hidden(List.of(rule), log, true, stacks);
-                Set<HashedEntryStackWrapper> hiddenWrappers = map.get(FilteringContextType.HIDDEN);
-                Set<HashedEntryStackWrapper> shownWrappers = map.get(FilteringContextType.SHOWN);
-                for (HashedEntryStackWrapper stack : hiddenWrappers) {
-                    hidden.add(stack.hashExact());
-                    cached.put(stack.hashExact(), false);
+                Map<FilteringContextType, Long2ObjectMap<EntryStack<?>>> map = results.get(rule);
+                LongSet hiddenHashes = map.get(FilteringContextType.HIDDEN).keySet();
+                LongSet shownHashes = map.get(FilteringContextType.SHOWN).keySet();
+                LongIterator iterator = hiddenHashes.iterator();
+                while (iterator.hasNext()) {
+                    long hash = iterator.nextLong();
+                    hidden.add(hash);
+                    cached.put(hash, false);
                 }
-                for (HashedEntryStackWrapper stack : shownWrappers) {
-                    shown.add(stack.hashExact());
-                    cached.put(stack.hashExact(), true);
+                iterator = shownHashes.iterator();
+                while (iterator.hasNext()) {
+                    long hash = iterator.nextLong();
+                    shown.add(hash);
+                    cached.put(hash, true);
                 }
-                if (!hiddenWrappers.isEmpty() || !shownWrappers.isEmpty()) mod++;
+                if (!hiddenHashes.isEmpty() || !shownHashes.isEmpty()) mod++;
             } else {
                 hashIterator = hashes.iterator();
                 while (hashIterator.hasNext()) {
@@ -256,14 +399,16 @@ public class PreFilteredEntryList implements FilteredEntryList {
                 return stacks.iterator();
             }
             
-            Iterator<HNEntryStackWrapper> iterator = list.collectHN().iterator();
+            // Test the registry columns by ordinal, only entries that pass the filtering are wrapped
             return new AbstractIterator<>() {
+                private int index = 0;
+                
                 @Nullable
                 @Override
                 protected HNEntryStackWrapper computeNext() {
-                    while (iterator.hasNext()) {
-                        HNEntryStackWrapper wrapper = iterator.next();
-                        if (isFiltered(wrapper.unwrap(), wrapper.hashExact())) return wrapper;
+                    while (index < list.size()) {
+                        int ordinal = list.ordinalAt(index++);
+                        if (isFiltered(list.stackOf(ordinal), list.exactHashOf(ordinal))) return list.wrapperOf(ordinal);
                     }
                     
                     return endOfData();
@@ -311,7 +456,7 @@ public class PreFilteredEntryList implements FilteredEntryList {
         return !stack.isEmpty() && cached.getOrDefault(hashExact, true);
     }
     
-    private record DataPair(LongSet hidden, LongSet shown) {
+    record DataPair(LongSet hidden, LongSet shown) {
         private DataPair() {
             this(new LongOpenHashSet(), new LongOpenHashSet());
         }
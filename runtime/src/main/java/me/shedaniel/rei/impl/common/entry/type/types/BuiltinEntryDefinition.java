@@ -31,6 +31,7 @@ import me.shedaniel.rei.api.common.entry.EntryStack;
 import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
 import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
 import me.shedaniel.rei.api.common.entry.type.EntryType;
+import me.shedaniel.rei.impl.common.util.HashMixer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.nbt.CompoundTag;
@@ -105,7 +106,7 @@ public class BuiltinEntryDefinition<T> implements EntryDefinition<T>, EntrySeria
     
     @Override
     public long hash(EntryStack<T> entry, T value, ComparisonContext context) {
-        return empty ? 0 : Objects.hash(value.getClass().getName(), value);
+        return empty ? 0 : HashMixer.combine(1L, value.getClass().getName().hashCode(), Objects.hashCode(value));
     }
     
     @Override
@@ -32,6 +32,12 @@ import java.util.Map;
 public interface PerformanceLogger {
     Plugin stage(String stage);
     
+    /**
+     * Adds a measured duration under {@code key} to the stage, without timing the stage itself.
+     * Unlike {@link #stage(String)}, this can be called concurrently.
+     */
+    void record(String stage, Object key, long nanos);
+    
     void clear();
     
     Map<String, Plugin> getStages();
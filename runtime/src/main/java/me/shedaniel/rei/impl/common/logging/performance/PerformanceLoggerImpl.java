@@ -46,6 +46,11 @@ public class PerformanceLoggerImpl implements PerformanceLogger {
         return plugin;
     }
     
+    @Override
+    public void record(String stage, Object key, long nanos) {
+        stages.computeIfAbsent(stage, $ -> new PluginImpl()).record(key, nanos);
+    }
+    
     @Override
     public Map<String, Plugin> getStages() {
         return (Map<String, Plugin>) (Map<String, ? extends Plugin>) stages;
@@ -74,6 +79,12 @@ public class PerformanceLoggerImpl implements PerformanceLogger {
             };
         }
         
+        private void record(Object key, long nanos) {
+            synchronized (times) {
+                times.put(key, times.getOrDefault(key, 0) + nanos);
+            }
+        }
+        
         @Override
         public void close() {
             stopwatch.stop();
@@ -24,32 +24,36 @@
 package me.shedaniel.rei.impl.common.util;
 
 import me.shedaniel.rei.api.common.entry.EntryStack;
-import me.shedaniel.rei.api.common.util.EntryStacks;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 @ApiStatus.Internal
 public class HNEntryStackWrapper extends HashedEntryStackWrapper {
-    private final EntryStack<?> normalized;
-    private final long normalizedHash;
+    /**
+     * The normalized wrapper, computed on first use. Registry entries are almost always normalized already,
+     * in which case this is the wrapper itself and no copy is retained.
+     */
+    @Nullable
+    private volatile HashedEntryStackWrapper normalized;
     
     public HNEntryStackWrapper(EntryStack<?> stack) {
         super(stack);
-        this.normalized = stack.normalize();
-        this.normalizedHash = EntryStacks.hashExact(this.normalized);
     }
     
     public HNEntryStackWrapper(EntryStack<?> stack, long hash) {
         super(stack, hash);
-        this.normalized = stack.normalize();
-        this.normalizedHash = EntryStacks.hashExact(this.normalized);
     }
     
     public EntryStack<?> normalized() {
-        return normalized;
+        return normalize().unwrap();
     }
     
     @Override
     public HashedEntryStackWrapper normalize() {
-        return new HashedEntryStackWrapper(normalized, normalizedHash);
+        HashedEntryStackWrapper normalized = this.normalized;
+        if (normalized == null) {
+            this.normalized = normalized = super.normalize();
+        }
+        return normalized;
     }
-}
\ No newline at end of file
+}
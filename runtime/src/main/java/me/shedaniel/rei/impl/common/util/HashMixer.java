@@ -0,0 +1,70 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.shedaniel.rei.impl.common.util;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * 64-bit hash mixing for entry hashes, which are used as unique keys throughout the runtime.
+ */
+@ApiStatus.Internal
+public final class HashMixer {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private HashMixer() {}
+    
+    /**
+     * Spreads the bits of {@code value} over the whole 64-bit range, using the finalizer of MurmurHash3.
+     */
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+    
+    /**
+     * Combines {@code value} into {@code hash}, order-dependently.
+     */
+    public static long combine(long hash, long value) {
+        return mix(hash * GOLDEN_GAMMA + value);
+    }
+    
+    public static long combine(long hash, long first, long second) {
+        return combine(combine(hash, first), second);
+    }
+    
+    /**
+     * Hashes the characters of {@code value} to 64 bits, using FNV-1a followed by {@link #mix(long)}.
+     */
+    public static long hashString(CharSequence value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+}
@@ -44,6 +44,7 @@ import me.shedaniel.rei.api.common.entry.comparison.FluidComparatorRegistry;
 import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
 import me.shedaniel.rei.api.common.entry.type.EntryType;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
+import me.shedaniel.rei.impl.common.util.HashMixer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.ChatFormatting;
@@ -158,10 +159,7 @@ public class FluidEntryDefinition implements EntryDefinition<FluidStack>, EntryS
     
     @Override
     public long hash(EntryStack<FluidStack> entry, FluidStack value, ComparisonContext context) {
-        int code = 1;
-        code = 31 * code + value.getFluid().hashCode();
-        code = 31 * code + Long.hashCode(FluidComparatorRegistry.getInstance().hashOf(context, value));
-        return code;
+        return HashMixer.combine(1L, BuiltInRegistries.FLUID.getId(value.getFluid()), FluidComparatorRegistry.getInstance().hashOf(context, value));
     }
     
     @Override
@@ -45,6 +45,8 @@ import me.shedaniel.rei.api.common.entry.comparison.ItemComparatorRegistry;
 import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
 import me.shedaniel.rei.api.common.entry.type.EntryType;
 import me.shedaniel.rei.api.common.entry.type.VanillaEntryTypes;
+import me.shedaniel.rei.impl.common.entry.comparison.ItemComparatorRegistryImpl;
+import me.shedaniel.rei.impl.common.util.HashMixer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.CrashReport;
@@ -150,17 +152,14 @@ public class ItemEntryDefinition implements EntryDefinition<ItemStack>, EntrySer
     
     @Override
     public long hash(EntryStack<ItemStack> entry, ItemStack value, ComparisonContext context) {
-        int code = 1;
-        code = 31 * code + System.identityHashCode(value.getItem());
-        code = 31 * code + Long.hashCode(ItemComparatorRegistry.getInstance().hashOf(context, value));
-        return code;
+        return HashMixer.combine(1L, BuiltInRegistries.ITEM.getId(value.getItem()), ItemComparatorRegistry.getInstance().hashOf(context, value));
     }
     
     @Override
     public boolean equals(ItemStack o1, ItemStack o2, ComparisonContext context) {
         if (o1.getItem() != o2.getItem())
             return false;
-        return ItemComparatorRegistry.getInstance().hashOf(context, o1) == ItemComparatorRegistry.getInstance().hashOf(context, o2);
+        return ((ItemComparatorRegistryImpl) ItemComparatorRegistry.getInstance()).equals(context, o1, o2);
     }
     
     @Override
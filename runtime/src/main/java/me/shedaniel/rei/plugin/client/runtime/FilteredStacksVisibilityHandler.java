@@ -41,10 +41,7 @@ import me.shedaniel.rei.impl.client.entry.filtering.FilteringContextType;
 import me.shedaniel.rei.impl.client.entry.filtering.FilteringResultImpl;
 import me.shedaniel.rei.impl.common.InternalLogger;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Predicate;
 
 public class FilteredStacksVisibilityHandler implements DisplayVisibilityPredicate {
@@ -63,6 +60,11 @@ public class FilteredStacksVisibilityHandler implements DisplayVisibilityPredica
         return EventResult.pass();
     }
     
+    @Override
+    public Set<InvalidationTrigger> getInvalidationTriggers() {
+        return EnumSet.of(InvalidationTrigger.FILTERING, InvalidationTrigger.CONFIG);
+    }
+    
     public void reset() {
         checkHiddenStacks = ConfigObject.getInstance().shouldFilterDisplays();
         visible = Reference2BooleanMaps.synchronize(new Reference2BooleanOpenHashMap<>());
@@ -116,7 +118,7 @@ public class FilteredStacksVisibilityHandler implements DisplayVisibilityPredica
         for (int i = rules.size() - 1; i >= 0; i--) {
             FilteringRule<?> rule = rules.get(i);
             context.handleResult((FilteringResultImpl) ((FilteringRule<Object>) rule).processFilteredStacks(context,
-                    () -> new FilteringResultImpl(new ArrayList<>(), new ArrayList<>()),
+                    context::createResult,
                     cache.get(rule), false));
         }
         return context.stacks.get(FilteringContextType.SHOWN).isEmpty() && context.stacks.get(FilteringContextType.DEFAULT).isEmpty();
@@ -0,0 +1,83 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import me.shedaniel.rei.impl.client.util.ComputeExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComputeExecutorTest {
+    @Test
+    void testChunkSize() {
+        assertEquals(256, ComputeExecutor.chunkSize(0));
+        assertEquals(256, ComputeExecutor.chunkSize(100));
+        int size = 10_000_000;
+        int chunkSize = ComputeExecutor.chunkSize(size);
+        assertTrue(chunkSize >= 256);
+        int chunks = (size + chunkSize - 1) / chunkSize;
+        assertTrue(chunks <= ComputeExecutor.parallelism() * 4, "too many chunks: " + chunks);
+        assertTrue(chunkSize * (long) chunks >= size);
+    }
+    
+    @Test
+    void testForRangeCoversEveryIndexOnce() {
+        for (int size : new int[]{0, 1, 255, 256, 257, 10_000, 123_457}) {
+            AtomicIntegerArray visits = new AtomicIntegerArray(size);
+            ComputeExecutor.forRange(size, (from, to) -> {
+                assertTrue(from >= 0 && from <= to && to <= size);
+                for (int i = from; i < to; i++) {
+                    visits.incrementAndGet(i);
+                }
+            });
+            for (int i = 0; i < size; i++) {
+                assertEquals(1, visits.get(i), "index " + i + " of " + size);
+            }
+        }
+    }
+    
+    @Test
+    void testForRangeIsDeterministic() {
+        long[] first = new long[50_000];
+        long[] second = new long[50_000];
+        ComputeExecutor.forRange(first.length, (from, to) -> {
+            for (int i = from; i < to; i++) first[i] = (long) i * i;
+        });
+        ComputeExecutor.forRange(second.length, (from, to) -> {
+            for (int i = from; i < to; i++) second[i] = (long) i * i;
+        });
+        assertArrayEquals(first, second);
+    }
+    
+    @Test
+    void testForEach() {
+        for (int count : new int[]{0, 1, 2, 17}) {
+            AtomicIntegerArray visits = new AtomicIntegerArray(count);
+            ComputeExecutor.forEach(count, visits::incrementAndGet);
+            for (int i = 0; i < count; i++) {
+                assertEquals(1, visits.get(i));
+            }
+        }
+    }
+}
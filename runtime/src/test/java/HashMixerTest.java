@@ -0,0 +1,84 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import me.shedaniel.rei.impl.common.util.HashMixer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashMixerTest {
+    @Test
+    void testMixIsBijectiveOnSequentialValues() {
+        LongSet hashes = new LongOpenHashSet();
+        for (long i = 0; i < 100_000; i++) {
+            assertTrue(hashes.add(HashMixer.mix(i)), "collision at " + i);
+        }
+    }
+    
+    @Test
+    void testMixAvalanche() {
+        long flippedBits = 0;
+        int samples = 0;
+        for (long value = 1; value < 1000; value++) {
+            long hash = HashMixer.mix(value * 0x9E3779B97F4A7C15L);
+            for (int bit = 0; bit < 64; bit++) {
+                flippedBits += Long.bitCount(hash ^ HashMixer.mix((value * 0x9E3779B97F4A7C15L) ^ (1L << bit)));
+                samples++;
+            }
+        }
+        double average = flippedBits / (double) samples;
+        assertTrue(average > 31 && average < 33, "average flipped bits: " + average);
+    }
+    
+    @Test
+    void testCombineIsOrderDependent() {
+        for (long a = 1; a < 100; a++) {
+            for (long b = a + 1; b < 100; b++) {
+                assertNotEquals(HashMixer.combine(HashMixer.combine(1L, a), b), HashMixer.combine(HashMixer.combine(1L, b), a));
+            }
+        }
+        assertEquals(HashMixer.combine(HashMixer.combine(7L, 3L), 5L), HashMixer.combine(7L, 3L, 5L));
+    }
+    
+    @Test
+    void testCombineUsesAllBits() {
+        // Values differing only in their upper 32 bits must not collide
+        LongSet hashes = new LongOpenHashSet();
+        for (long i = 0; i < 10_000; i++) {
+            assertTrue(hashes.add(HashMixer.combine(1L, i << 32)));
+        }
+    }
+    
+    @Test
+    void testHashString() {
+        assertEquals(HashMixer.hashString("minecraft:stone"), HashMixer.hashString(new StringBuilder("minecraft:").append("stone")));
+        assertNotEquals(HashMixer.hashString("ab"), HashMixer.hashString("ba"));
+        assertNotEquals(HashMixer.hashString(""), HashMixer.hashString("\0"));
+        LongSet hashes = new LongOpenHashSet();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(hashes.add(HashMixer.hashString("key" + i)), "collision at " + i);
+        }
+    }
+}
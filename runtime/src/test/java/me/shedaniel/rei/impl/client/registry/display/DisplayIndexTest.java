@@ -0,0 +1,191 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.registry.display;
+
+import me.shedaniel.rei.api.common.display.Display;
+import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
+import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
+import me.shedaniel.rei.api.common.entry.type.EntryType;
+import me.shedaniel.rei.api.common.entry.type.EntryTypeRegistry;
+import me.shedaniel.rei.api.common.plugins.PluginManager;
+import me.shedaniel.rei.api.common.util.EntryStacks;
+import me.shedaniel.rei.impl.Internals;
+import me.shedaniel.rei.impl.common.entry.EntryIngredientImpl;
+import me.shedaniel.rei.impl.common.entry.TypedEntryStack;
+import me.shedaniel.rei.impl.common.entry.type.EntryTypeRegistryImpl;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisplayIndexTest {
+    private static final EntryType<Integer> TYPE = type();
+    private static final EntryDefinition<Integer> DEFINITION = definition(1);
+    /**
+     * Hashes every value the same, to check that colliding hashes are verified.
+     */
+    private static final EntryDefinition<Integer> COLLIDING_DEFINITION = definition(0);
+    private final List<Display> displays = new ArrayList<>();
+    private DisplayIndex index;
+    
+    @BeforeAll
+    static void setup() {
+        EntryTypeRegistryImpl registry = new EntryTypeRegistryImpl();
+        PluginManager<?> manager = (PluginManager<?>) Proxy.newProxyInstance(PluginManager.class.getClassLoader(), new Class[]{PluginManager.class},
+                (proxy, method, args) -> method.getName().equals("get") && args[0] == EntryTypeRegistry.class ? registry : null);
+        Internals.attachInstanceSupplier(manager, "commonPluginManager");
+    }
+    
+    @BeforeEach
+    void createIndex() {
+        this.displays.clear();
+        this.index = new DisplayIndex(Display::getInputEntries, this.displays::indexOf, this.displays::get);
+    }
+    
+    private static EntryType<Integer> type() {
+        ResourceLocation id = ResourceLocation.fromNamespaceAndPath("test", "value");
+        return (EntryType<Integer>) Proxy.newProxyInstance(EntryType.class.getClassLoader(), new Class[]{EntryType.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> id.hashCode();
+                    case "toString" -> id.toString();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    private static EntryDefinition<Integer> definition(int salt) {
+        return (EntryDefinition<Integer>) Proxy.newProxyInstance(EntryDefinition.class.getClassLoader(), new Class[]{EntryDefinition.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getType" -> TYPE;
+                    case "acceptsNull" -> false;
+                    // The fuzzy hash ignores the parity of the value
+                    case "hash" -> salt == 0 ? 0L : ((ComparisonContext) args[2]).isExact() ? (long) (int) args[1] * 31 + salt : (long) ((int) args[1] / 2) * 31 + salt;
+                    case "equals" -> args.length == 3 ? ((ComparisonContext) args[2]).isExact() ? Objects.equals(args[0], args[1]) : (int) args[0] / 2 == (int) args[1] / 2 : proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    private static EntryStack<Integer> stack(int value) {
+        return new TypedEntryStack<>(DEFINITION, value);
+    }
+    
+    private static EntryIngredient ingredient(EntryStack<?>... stacks) {
+        return EntryIngredientImpl.INSTANCE.of(stacks);
+    }
+    
+    /**
+     * An ingredient large enough to be indexed under a group key, like a tag.
+     */
+    private static EntryIngredient tag() {
+        EntryStack<?>[] stacks = new EntryStack[10];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = stack(i * 2);
+        }
+        return ingredient(stacks);
+    }
+    
+    private Display display(EntryIngredient... inputs) {
+        List<EntryIngredient> ingredients = List.of(inputs);
+        Display display = (Display) Proxy.newProxyInstance(Display.class.getClassLoader(), new Class[]{Display.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInputEntries" -> ingredients;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Display" + ingredients;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        this.displays.add(display);
+        return display;
+    }
+    
+    @Test
+    void testBuildMergesGroupsInRegistrationOrder() {
+        Display first = display(ingredient(stack(0)));
+        Display firstTag = display(tag(), ingredient(stack(0)));
+        Display second = display(ingredient(stack(2)));
+        Display secondTag = display(tag());
+        this.index.build(List.copyOf(this.displays));
+        
+        assertEquals(List.of(first, firstTag, secondTag), this.index.get(stack(0)));
+        // Fuzzily equal to the indexed stack
+        assertEquals(List.of(first, firstTag, secondTag), this.index.get(stack(1)));
+        assertEquals(List.of(firstTag, second, secondTag), this.index.get(stack(2)));
+        assertEquals(List.of(firstTag, secondTag), this.index.get(stack(18)));
+        assertEquals(List.of(), this.index.get(stack(20)));
+        // Both tags share one group
+        assertEquals(1, this.index.groups.size());
+    }
+    
+    @Test
+    void testAddAndRemoveKeepGroupsInSync() {
+        Display firstTag = display(tag());
+        Display plain = display(ingredient(stack(4)));
+        this.index.build(List.copyOf(this.displays));
+        Display secondTag = display(tag());
+        this.index.add(secondTag, 2);
+        
+        assertEquals(List.of(firstTag, plain, secondTag), this.index.get(stack(4)));
+        this.index.remove(firstTag, 0);
+        assertEquals(List.of(plain, secondTag), this.index.get(stack(4)));
+        this.index.remove(secondTag, 2);
+        assertEquals(List.of(plain), this.index.get(stack(4)));
+        assertEquals(List.of(), this.index.get(stack(6)));
+        assertTrue(this.index.groups.isEmpty());
+        assertTrue(this.index.groupsByMember.isEmpty());
+    }
+    
+    @Test
+    void testCollidingHashesAreVerified() {
+        EntryStack<Integer> one = new TypedEntryStack<>(COLLIDING_DEFINITION, 2);
+        EntryStack<Integer> other = new TypedEntryStack<>(COLLIDING_DEFINITION, 4);
+        assertEquals(EntryStacks.hashFuzzy(one), EntryStacks.hashFuzzy(other));
+        Display first = display(ingredient(one));
+        Display second = display(ingredient(other));
+        this.index.build(List.copyOf(this.displays));
+        
+        assertEquals(List.of(first), this.index.get(new TypedEntryStack<>(COLLIDING_DEFINITION, 3)));
+        assertEquals(List.of(second), this.index.get(other));
+        assertEquals(List.of(), this.index.get(new TypedEntryStack<>(COLLIDING_DEFINITION, 6)));
+    }
+    
+    @Test
+    void testUnequalStackWithSameHashIsNotMatched() {
+        Display display = display(ingredient(new TypedEntryStack<>(COLLIDING_DEFINITION, 2)));
+        this.index.build(List.copyOf(this.displays));
+        
+        assertEquals(List.of(display), this.index.get(new TypedEntryStack<>(COLLIDING_DEFINITION, 3)));
+        assertEquals(List.of(), this.index.get(new TypedEntryStack<>(COLLIDING_DEFINITION, 4)));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.client.registry.display;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisplayVisibilityCacheTest {
+    @Test
+    void testUnknownUntilSet() {
+        DisplayVisibilityCache cache = new DisplayVisibilityCache(100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(i));
+        }
+        cache.set(0, true);
+        cache.set(31, false);
+        cache.set(32, true);
+        cache.set(99, false);
+        assertEquals(DisplayVisibilityCache.VISIBLE, cache.get(0));
+        assertEquals(DisplayVisibilityCache.HIDDEN, cache.get(31));
+        assertEquals(DisplayVisibilityCache.VISIBLE, cache.get(32));
+        assertEquals(DisplayVisibilityCache.HIDDEN, cache.get(99));
+        // Neighbours sharing the same word are untouched
+        assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(1));
+        assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(30));
+        assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(33));
+    }
+    
+    @Test
+    void testOrdinalsOutOfRangeAreIgnored() {
+        DisplayVisibilityCache cache = new DisplayVisibilityCache(10);
+        cache.set(-1, true);
+        cache.set(10, true);
+        assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(-1));
+        assertEquals(DisplayVisibilityCache.UNKNOWN, cache.get(10));
+        assertEquals(DisplayVisibilityCache.UNKNOWN, new DisplayVisibilityCache(0).get(0));
+    }
+    
+    @Test
+    void testConcurrentSetsDoNotLoseBits() {
+        DisplayVisibilityCache cache = new DisplayVisibilityCache(4096);
+        IntStream.range(0, 4096).parallel().forEach(i -> cache.set(i, i % 3 == 0));
+        for (int i = 0; i < 4096; i++) {
+            assertEquals(i % 3 == 0 ? DisplayVisibilityCache.VISIBLE : DisplayVisibilityCache.HIDDEN, cache.get(i));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry;
+
+import dev.architectury.event.CompoundEventResult;
+import me.shedaniel.rei.api.common.entry.EntryIngredient;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import me.shedaniel.rei.api.common.entry.comparison.ComparisonContext;
+import me.shedaniel.rei.api.common.entry.settings.EntryIngredientSetting;
+import me.shedaniel.rei.api.common.entry.type.EntryDefinition;
+import me.shedaniel.rei.api.common.entry.type.EntryType;
+import me.shedaniel.rei.api.common.entry.type.EntryTypeRegistry;
+import me.shedaniel.rei.api.common.plugins.PluginManager;
+import me.shedaniel.rei.impl.Internals;
+import me.shedaniel.rei.impl.common.entry.type.EntryTypeRegistryImpl;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntryIngredientImplTest {
+    /**
+     * Items with a value of at least this are buckets, bridged to the fluid of their value minus this.
+     */
+    private static final int BUCKET = 1000;
+    private static final EntryType<Integer> ITEM = type("item");
+    private static final EntryType<Integer> FLUID = type("fluid");
+    private static final EntryType<Integer> OTHER = type("other");
+    private static final EntryDefinition<Integer> ITEM_DEFINITION = definition(ITEM, 1);
+    private static final EntryDefinition<Integer> FLUID_DEFINITION = definition(FLUID, 2);
+    private static final EntryDefinition<Integer> OTHER_DEFINITION = definition(OTHER, 3);
+    /**
+     * Hashes every value the same, to check that colliding hashes are verified.
+     */
+    private static final EntryDefinition<Integer> COLLIDING_DEFINITION = definition(OTHER, 0);
+    
+    @BeforeAll
+    static void setup() {
+        EntryTypeRegistryImpl registry = new EntryTypeRegistryImpl();
+        registry.registerBridge(ITEM, FLUID, input -> {
+            if (input.getValue() < BUCKET) return CompoundEventResult.pass();
+            return CompoundEventResult.interruptTrue(Stream.of(fluid(input.getValue() - BUCKET)));
+        });
+        PluginManager<?> manager = (PluginManager<?>) Proxy.newProxyInstance(PluginManager.class.getClassLoader(), new Class[]{PluginManager.class},
+                (proxy, method, args) -> method.getName().equals("get") && args[0] == EntryTypeRegistry.class ? registry : null);
+        Internals.attachInstanceSupplier(manager, "commonPluginManager");
+    }
+    
+    private static <T> EntryType<T> type(String path) {
+        ResourceLocation id = ResourceLocation.fromNamespaceAndPath("test", path);
+        return (EntryType<T>) Proxy.newProxyInstance(EntryType.class.getClassLoader(), new Class[]{EntryType.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> id.hashCode();
+                    case "toString" -> id.toString();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    private static EntryDefinition<Integer> definition(EntryType<Integer> type, int salt) {
+        return (EntryDefinition<Integer>) Proxy.newProxyInstance(EntryDefinition.class.getClassLoader(), new Class[]{EntryDefinition.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getType" -> type;
+                    case "acceptsNull" -> false;
+                    // The fuzzy hash ignores the parity of the value
+                    case "hash" -> salt == 0 ? 0L : ((ComparisonContext) args[2]).isExact() ? (long) (int) args[1] * 31 + salt : (long) ((int) args[1] / 2) * 31 + salt;
+                    case "equals" -> args.length == 3 ? ((ComparisonContext) args[2]).isExact() ? Objects.equals(args[0], args[1]) : (int) args[0] / 2 == (int) args[1] / 2 : proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+    
+    private static EntryStack<Integer> item(int value) {
+        return new TypedEntryStack<>(ITEM_DEFINITION, value);
+    }
+    
+    private static EntryStack<Integer> fluid(int value) {
+        return new TypedEntryStack<>(FLUID_DEFINITION, value);
+    }
+    
+    private static EntryIngredient ingredient(EntryStack<?>... stacks) {
+        return EntryIngredientImpl.INSTANCE.of(stacks);
+    }
+    
+    private static EntryStack<?>[] fluids(int count) {
+        EntryStack<?>[] stacks = new EntryStack[count];
+        for (int i = 0; i < count; i++) {
+            stacks[i] = fluid(i * 2);
+        }
+        return stacks;
+    }
+    
+    @Test
+    void testIndexOfSmallAndLargeIngredients() {
+        for (int count : new int[]{4, 40}) {
+            EntryIngredient ingredient = ingredient(fluids(count));
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, ingredient.indexOf(fluid(i * 2)));
+                assertTrue(EntryIngredientImpl.containsFuzzy(ingredient, fluid(i * 2 + 1)));
+            }
+            assertEquals(-1, ingredient.indexOf(fluid(1)));
+            assertEquals(-1, ingredient.indexOf(fluid(count * 2)));
+            assertFalse(EntryIngredientImpl.containsFuzzy(ingredient, fluid(count * 2)));
+            assertFalse(ingredient.contains(new TypedEntryStack<>(OTHER_DEFINITION, 0)));
+        }
+    }
+    
+    @Test
+    void testIndexOfThroughBridge() {
+        for (int count : new int[]{4, 40}) {
+            EntryIngredient ingredient = ingredient(fluids(count));
+            // A bucket equals the fluid it holds, even though their hashes differ
+            assertEquals(3, ingredient.indexOf(item(BUCKET + 6)));
+            assertTrue(EntryIngredientImpl.containsFuzzy(ingredient, item(BUCKET + 7)));
+            assertEquals(-1, ingredient.indexOf(item(BUCKET + 7)));
+            assertEquals(-1, ingredient.indexOf(item(6)));
+            assertFalse(EntryIngredientImpl.containsFuzzy(ingredient, item(BUCKET + count * 2)));
+        }
+    }
+    
+    @Test
+    void testIndexOfInMixedIngredient() {
+        EntryStack<?>[] stacks = new EntryStack[40];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = i % 2 == 0 ? item(i) : fluid(i);
+        }
+        EntryIngredient ingredient = ingredient(stacks);
+        assertEquals(10, ingredient.indexOf(item(10)));
+        assertEquals(11, ingredient.indexOf(fluid(11)));
+        assertEquals(-1, ingredient.indexOf(fluid(10)));
+        // Fluids have no bridge towards items, but buckets can still match a fluid of the ingredient
+        assertEquals(13, ingredient.indexOf(item(BUCKET + 13)));
+    }
+    
+    @Test
+    void testInterningSharesEqualStacks() {
+        EntryIngredientImpl.startInterning();
+        EntryIngredient first = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        EntryIngredient second = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        EntryIngredient different = EntryIngredientImpl.INSTANCE.intern(ingredient(fluid(0), fluid(4)));
+        EntryIngredientImpl.stopInterning();
+        
+        assertNotSame(first, second);
+        assertSame(first.get(0), second.get(0));
+        assertEquals(first, second);
+        assertEquals(2, different.size());
+        assertEquals(4, different.get(1).getValue());
+        assertEquals(7, second.indexOf(fluid(14)));
+    }
+    
+    @Test
+    void testInternedIngredientsKeepTheirSettings() {
+        EntryIngredientImpl.startInterning();
+        EntryIngredient first = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        EntryIngredient second = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        EntryIngredientImpl.stopInterning();
+        
+        UUID uuid = UUID.randomUUID();
+        first.setting(EntryIngredientSetting.FOCUS_UUID, uuid);
+        assertEquals(uuid, first.getSetting(EntryIngredientSetting.FOCUS_UUID));
+        assertNull(second.getSetting(EntryIngredientSetting.FOCUS_UUID));
+    }
+    
+    @Test
+    void testInterningVerifiesCollidingHashes() {
+        EntryIngredientImpl.startInterning();
+        EntryIngredient first = EntryIngredientImpl.INSTANCE.intern(ingredient(new TypedEntryStack<>(COLLIDING_DEFINITION, 1), new TypedEntryStack<>(COLLIDING_DEFINITION, 2)));
+        EntryIngredient second = EntryIngredientImpl.INSTANCE.intern(ingredient(new TypedEntryStack<>(COLLIDING_DEFINITION, 3), new TypedEntryStack<>(COLLIDING_DEFINITION, 4)));
+        EntryIngredientImpl.stopInterning();
+        
+        assertEquals(1, first.get(0).getValue());
+        assertEquals(3, second.get(0).getValue());
+    }
+    
+    @Test
+    void testNoInterningOutsideReload() {
+        EntryIngredientImpl.stopInterning();
+        EntryIngredient first = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        EntryIngredient second = EntryIngredientImpl.INSTANCE.intern(ingredient(fluids(20)));
+        assertNotSame(first.get(0), second.get(0));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry.comparison;
+
+import com.mojang.serialization.Codec;
+import net.minecraft.core.component.DataComponentType;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NbtHasherProviderImplTest {
+    private static <T> DataComponentType<T> type(Codec<T> codec) {
+        return (DataComponentType<T>) Proxy.newProxyInstance(DataComponentType.class.getClassLoader(), new Class[]{DataComponentType.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "codec" -> codec;
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "test";
+                    default -> null;
+                });
+    }
+    
+    @Test
+    void testValueHashIsCachedByIdentity() {
+        AtomicInteger encoded = new AtomicInteger();
+        DataComponentType<List<String>> type = type(Codec.STRING.listOf().xmap(Function.identity(), list -> {
+            encoded.incrementAndGet();
+            return list;
+        }));
+        List<String> value = new ArrayList<>(List.of("a", "b"));
+        long hash = NbtHasherProviderImpl.valueHash(type, value);
+        assertEquals(1, encoded.get());
+        assertEquals(hash, NbtHasherProviderImpl.valueHash(type, value));
+        assertEquals(1, encoded.get());
+        
+        // Equal values of other instances are encoded again, and hash the same
+        assertEquals(hash, NbtHasherProviderImpl.valueHash(type, new ArrayList<>(value)));
+        assertEquals(2, encoded.get());
+        assertNotEquals(hash, NbtHasherProviderImpl.valueHash(type, new ArrayList<>(List.of("b", "a"))));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry.type;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import me.shedaniel.rei.api.common.entry.EntryStack;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntryRegistryListImplTest {
+    private static EntryStack<?> stack() {
+        return (EntryStack<?>) Proxy.newProxyInstance(EntryStack.class.getClassLoader(), new Class[]{EntryStack.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+    
+    private static EntryRegistryListImpl filled(int count, List<EntryStack<?>> stacks) {
+        EntryRegistryListImpl list = new EntryRegistryListImpl(4);
+        LongList hashes = new LongArrayList();
+        for (int i = 0; i < count; i++) {
+            stacks.add(stack());
+            hashes.add(i);
+        }
+        list.addAll(stacks, hashes);
+        return list;
+    }
+    
+    private static void assertConsistent(EntryRegistryListImpl list, List<EntryStack<?>> stacks, LongList hashes) {
+        assertEquals(stacks.size(), list.size());
+        assertEquals(stacks, list.collect());
+        assertEquals(hashes, list.collectHashes());
+        for (int i = 0; i < stacks.size(); i++) {
+            assertSame(stacks.get(i), list.collectHN().get(i).unwrap());
+            assertEquals(hashes.getLong(i), list.collectHN().get(i).hashExact());
+            assertTrue(list.containsHash(hashes.getLong(i)));
+            assertEquals(i, list.indexOfOrdinal(list.ordinalAt(i)));
+        }
+    }
+    
+    @Test
+    void testAddKeepsOrder() {
+        EntryRegistryListImpl list = new EntryRegistryListImpl(2);
+        EntryStack<?> a = stack(), b = stack(), c = stack(), d = stack();
+        list.add(a, 1);
+        list.add(c, 3);
+        list.add(1, b, 2);
+        list.addAll(0, List.of(d), LongList.of(4));
+        assertConsistent(list, List.of(d, a, b, c), LongList.of(4, 1, 2, 3));
+        assertFalse(list.containsHash(5));
+    }
+    
+    @Test
+    void testDuplicateHashIsIgnored() {
+        EntryRegistryListImpl list = new EntryRegistryListImpl(2);
+        EntryStack<?> a = stack(), b = stack(), c = stack();
+        list.add(a, 1);
+        list.add(b, 1);
+        list.add(0, b, 1);
+        list.addAll(List.of(c, b), LongList.of(2, 1));
+        assertConsistent(list, List.of(a, c), LongList.of(1, 2));
+    }
+    
+    @Test
+    void testOrdinals() {
+        List<EntryStack<?>> stacks = new ArrayList<>();
+        EntryRegistryListImpl list = filled(5, stacks);
+        int ordinal = list.ordinalAt(3);
+        assertSame(stacks.get(3), list.stackOf(ordinal));
+        assertEquals(3, list.exactHashOf(ordinal));
+        assertSame(stacks.get(3), list.wrapperOf(ordinal).unwrap());
+        
+        list.add(0, stack(), 10);
+        assertEquals(4, list.indexOfOrdinal(ordinal));
+        list.remove(stacks.get(0), 0);
+        assertEquals(3, list.indexOfOrdinal(ordinal));
+        list.removeExactIf((stack, hashExact) -> hashExact == 1);
+        assertEquals(2, list.indexOfOrdinal(ordinal));
+        list.remove(stacks.get(3), 3);
+        assertEquals(-1, list.indexOfOrdinal(ordinal));
+    }
+    
+    @Test
+    void testRemove() {
+        List<EntryStack<?>> stacks = new ArrayList<>();
+        EntryRegistryListImpl list = filled(5, stacks);
+        assertTrue(list.remove(stacks.get(2), 2));
+        assertFalse(list.remove(stacks.get(2), 2));
+        assertFalse(list.containsHash(2));
+        assertConsistent(list, List.of(stacks.get(0), stacks.get(1), stacks.get(3), stacks.get(4)), LongList.of(0, 1, 3, 4));
+    }
+    
+    @Test
+    void testRemoveIf() {
+        List<EntryStack<?>> stacks = new ArrayList<>();
+        EntryRegistryListImpl list = filled(6, stacks);
+        assertTrue(list.removeExactIf((stack, hashExact) -> hashExact % 2 == 0));
+        assertFalse(list.removeExactIf((stack, hashExact) -> hashExact % 2 == 0));
+        assertConsistent(list, List.of(stacks.get(1), stacks.get(3), stacks.get(5)), LongList.of(1, 3, 5));
+    }
+    
+    @Test
+    void testCompaction() {
+        List<EntryStack<?>> stacks = new ArrayList<>();
+        EntryRegistryListImpl list = filled(2000, stacks);
+        // Half of the slots end up released, which compacts the columns
+        for (int i = 0; i < 2000; i += 3) {
+            assertTrue(list.remove(stacks.get(i), i));
+        }
+        assertTrue(list.removeExactIf((stack, hashExact) -> hashExact % 3 == 1 && hashExact < 1000));
+        
+        List<EntryStack<?>> expectedStacks = new ArrayList<>();
+        LongList expectedHashes = new LongArrayList();
+        for (int i = 0; i < 2000; i++) {
+            if (i % 3 == 0 || (i % 3 == 1 && i < 1000)) continue;
+            expectedStacks.add(stacks.get(i));
+            expectedHashes.add(i);
+        }
+        assertConsistent(list, expectedStacks, expectedHashes);
+        
+        EntryStack<?> added = stack();
+        list.add(1, added, 5000);
+        expectedStacks.add(1, added);
+        expectedHashes.add(1, 5000);
+        assertTrue(list.remove(expectedStacks.get(0), expectedHashes.removeLong(0)));
+        expectedStacks.remove(0);
+        assertConsistent(list, expectedStacks, expectedHashes);
+    }
+    
+    @Test
+    void testClear() {
+        EntryRegistryListImpl list = filled(10, new ArrayList<>());
+        list.clear();
+        assertEquals(0, list.size());
+        assertFalse(list.containsHash(0));
+        EntryStack<?> stack = stack();
+        list.add(stack, 0);
+        assertConsistent(list, List.of(stack), LongList.of(0));
+    }
+}
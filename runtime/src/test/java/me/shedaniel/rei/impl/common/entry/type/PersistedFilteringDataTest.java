@@ -0,0 +1,105 @@
+/*
+ * This file is licensed under the MIT License, part of Roughly Enough Items.
+ * Copyright (c) 2018, 2019, 2020, 2021, 2022, 2023 shedaniel
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.shedaniel.rei.impl.common.entry.type;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistedFilteringDataTest {
+    private static final byte[] ENVIRONMENT = "mods".getBytes(StandardCharsets.UTF_8);
+    
+    @TempDir
+    Path tempDir;
+    
+    private static Long2LongMap map(long... pairs) {
+        Long2LongMap map = new Long2LongOpenHashMap();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+    
+    private static LongSet set(long... values) {
+        return new LongOpenHashSet(values);
+    }
+    
+    @Test
+    void testResultsSurviveFreshHasher() throws IOException {
+        Path path = tempDir.resolve("filtering_cache.bin");
+        // First launch, entries A to E have the exact hashes 1 to 5 and the stable keys 101 to 105
+        Long2LongMap exactToStable = map(1, 101, 2, 102, 3, 103, 4, 104, 5, 105);
+        PreFilteredEntryList.DataPair pair = new PreFilteredEntryList.DataPair(set(1, 2), set(3));
+        PersistedFilteringData.write(path, ENVIRONMENT, new PersistedFilteringData(exactToStable.keySet(), Map.of("rule", pair)).remap(exactToStable));
+        
+        // Next launch, the hasher hands out different exact hashes, D was removed and F was added
+        Long2LongMap stableToExact = map(101, 11, 102, 12, 103, 13, 105, 15, 106, 16);
+        PersistedFilteringData data = PersistedFilteringData.read(path, ENVIRONMENT);
+        assertNotNull(data);
+        data = data.remap(stableToExact);
+        
+        assertEquals(set(11, 12, 13, 15), data.getEvaluatedHashes());
+        PreFilteredEntryList.DataPair restored = data.get("rule");
+        assertNotNull(restored);
+        assertEquals(set(11, 12), restored.hidden());
+        assertEquals(set(13), restored.shown());
+        assertNull(data.get("other rule"));
+    }
+    
+    @Test
+    void testChangedEnvironmentIsDiscarded() throws IOException {
+        Path path = tempDir.resolve("filtering_cache.bin");
+        PersistedFilteringData.write(path, ENVIRONMENT, new PersistedFilteringData(set(101), Map.of()));
+        assertNotNull(PersistedFilteringData.read(path, ENVIRONMENT));
+        assertNull(PersistedFilteringData.read(path, "other mods".getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    void testRemapDropsUnknownHashes() {
+        PersistedFilteringData data = new PersistedFilteringData(set(1, 2, 3), Map.of("rule", new PreFilteredEntryList.DataPair(set(1, 3), set(2))));
+        PersistedFilteringData remapped = data.remap(map(1, 101, 2, 102));
+        assertEquals(set(101, 102), remapped.getEvaluatedHashes());
+        assertEquals(set(101), remapped.get("rule").hidden());
+        assertEquals(set(102), remapped.get("rule").shown());
+    }
+    
+    @Test
+    void testContainsAny() {
+        PersistedFilteringData data = new PersistedFilteringData(set(1), Map.of("rule", new PreFilteredEntryList.DataPair(set(1), set())));
+        assertTrue(data.containsAny(List.of("other rule", "rule")));
+        assertFalse(data.containsAny(List.of("other rule")));
+        assertFalse(data.containsAny(List.of()));
+    }
+}